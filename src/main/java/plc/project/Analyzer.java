@@ -4,8 +4,13 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
@@ -16,10 +21,29 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     public Scope scope;
     private Ast.Method method;
+    private final Scope sourceScope;
+    private final Map<String, Integer> declarations;
+    private final int index;
+    private List<RuntimeException> errors = null;
 
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
+        sourceScope = scope;
+        declarations = Collections.emptyMap();
+        index = 0;
+    }
+
+    /**
+     * Creates an analyzer checking the body of the method at {@code index}
+     * in the source, whose signatures were declared in {@code scope} in the
+     * order given by {@code declarations}.
+     */
+    private Analyzer(Scope scope, Map<String, Integer> declarations, int index) {
+        this.scope = scope;
+        this.sourceScope = scope;
+        this.declarations = declarations;
+        this.index = index;
     }
 
     public Scope getScope() {
@@ -42,6 +66,92 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     } // TODO test
 
+    /**
+     * Analyzes the source like {@link #visit(Ast.Source)}, but checks the
+     * method bodies concurrently on the pool. The fields and the signatures of
+     * all methods are declared first, after which each body is checked by its
+     * own analyzer in a child scope of this analyzer's scope.
+     *
+     * A call to a method declared later in the source is resolved as if that
+     * method were not yet declared, and the error thrown is the one of the
+     * first method in the source, so the result and any errors are always the
+     * same as for a sequential analysis.
+     */
+    public void visit(Ast.Source ast, ForkJoinPool pool) {
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        List<Ast.Method> methods = ast.getMethods();
+        Map<String, Integer> declarations = new HashMap<>();
+        RuntimeException error = null;
+        int declared = 0;
+        for (; declared < methods.size(); declared++) {
+            try {
+                declare(methods.get(declared));
+            } catch (RuntimeException e) {
+                error = e;
+                break;
+            }
+            Environment.Function function = methods.get(declared).getFunction();
+            declarations.put(function.getName() + "/" + function.getParameterTypes().size(), declared);
+        }
+
+        RuntimeException[] errors = new RuntimeException[declared];
+        pool.invoke(new MethodsTask(scope, declarations, methods, errors, 0, declared));
+        for (RuntimeException e : errors) {
+            if (e != null) {
+                throw e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+
+        if (!(scope.lookupFunction("main", 0).getReturnType().equals(Environment.Type.INTEGER))) {
+            throw new RuntimeException("Return type of main function is not Integer.");
+        }
+    }
+
+    /**
+     * Analyzes the source like {@link #visit(Ast.Source)}, adding each error
+     * to {@code errors} instead of throwing the first one. Analysis continues
+     * with the next field, method, or statement, and a variable whose
+     * declaration failed is still defined, as {@code Any} if its type is
+     * unknown, so its later uses are not reported as well. The first error is
+     * the one thrown by {@link #visit(Ast.Source)}.
+     */
+    public void visit(Ast.Source ast, List<RuntimeException> errors) {
+        this.errors = errors;
+        try {
+            for (Ast.Field field : ast.getFields()) {
+                try {
+                    visit(field);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                    defineRecovered(field.getName(), Optional.of(field.getTypeName()));
+                }
+            }
+            for (Ast.Method method : ast.getMethods()) {
+                try {
+                    declare(method);
+                    visitStatements(method);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                }
+            }
+
+            try {
+                if (!(scope.lookupFunction("main", 0).getReturnType().equals(Environment.Type.INTEGER))) {
+                    throw new RuntimeException("Return type of main function is not Integer.");
+                }
+            } catch (RuntimeException e) {
+                errors.add(e);
+            }
+        } finally {
+            this.errors = null;
+        }
+    }
+
     @Override
     public Void visit(Ast.Field ast) {
         if (ast.getValue().isPresent()) {
@@ -55,6 +165,13 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Method ast) {
+        declare(ast);
+        visitStatements(ast);
+
+        return null;
+    } // TODO test
+
+    private void declare(Ast.Method ast) {
         List<Environment.Type> typeList = new ArrayList<>();
         for (String name : ast.getParameterTypeNames()) {
             typeList.add(Environment.getType(name));
@@ -65,22 +182,22 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
 
         ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), typeList, retType, args -> Environment.NIL));
+    }
 
+    private void visitStatements(Ast.Method ast) {
         try {
             scope = new Scope(scope);
-            scope.defineVariable("returnType", "returnType", Environment.getType(retType.getName()), Environment.NIL);
+            scope.defineVariable("returnType", "returnType", Environment.getType(ast.getFunction().getReturnType().getName()), Environment.NIL);
             for (String name : ast.getParameters()) {
                 scope.defineVariable(name, Environment.NIL);
             }
             for (Ast.Stmt stmt : ast.getStatements()) {
-                visit(stmt);
+                visitStatement(stmt);
             }
         } finally {
             scope = scope.getParent();
         }
-
-        return null;
-    } // TODO test
+    }
 
     @Override
     public Void visit(Ast.Stmt.Expression ast) {
@@ -140,7 +257,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         try {
             scope = new Scope(scope);
             for (Ast.Stmt stmt : ast.getThenStatements()) {
-                visit(stmt);
+                visitStatement(stmt);
             }
         } finally {
             scope = scope.getParent();
@@ -149,7 +266,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         try {
             scope = new Scope(scope);
             for (Ast.Stmt stmt : ast.getElseStatements()) {
-                visit(stmt);
+                visitStatement(stmt);
             }
         } finally {
             scope = scope.getParent();
@@ -173,7 +290,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
             scope = new Scope(scope);
             scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.INTEGER, Environment.NIL);
             for (Ast.Stmt stmt : ast.getStatements()) {
-                visit(stmt);
+                visitStatement(stmt);
             }
         } finally {
             scope = scope.getParent();
@@ -192,7 +309,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         try {
             scope = new Scope(scope);
             for (Ast.Stmt stmt : ast.getStatements()) {
-                visit(stmt);
+                visitStatement(stmt);
             }
         } finally {
             scope = scope.getParent();
@@ -254,9 +371,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
             ast.setType(Environment.Type.BOOLEAN);
         } else if (ast.getOperator().equals("<") || ast.getOperator().equals("<=") || ast.getOperator().equals(">") || ast.getOperator().equals(">=") || ast.getOperator().equals("==") || ast.getOperator().equals("!=")) {
             visit(ast.getLeft());
-            requireAssignable(ast.getLeft().getType(), Environment.Type.COMPARABLE);
+            requireAssignable(Environment.Type.COMPARABLE, ast.getLeft().getType());
             visit(ast.getRight());
-            requireAssignable(ast.getRight().getType(), Environment.Type.COMPARABLE);
+            requireAssignable(Environment.Type.COMPARABLE, ast.getRight().getType());
             ast.setType(Environment.Type.BOOLEAN);
         } else if (ast.getOperator().equals("+")) {
             visit(ast.getLeft());
@@ -323,7 +440,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
                 requireAssignable(ast.getFunction().getParameterTypes().get(i + 1), ast.getArguments().get(i).getType());
             }
         } else {
-            ast.setFunction(scope.lookupFunction(ast.getName(), ast.getArguments().size()));
+            ast.setFunction(lookupFunction(ast.getName(), ast.getArguments().size()));
             for (int i = 0; i < ast.getArguments().size(); i++) {
                 visit(ast.getArguments().get(i));
                 requireAssignable(ast.getFunction().getParameterTypes().get(i), ast.getArguments().get(i).getType());
@@ -333,6 +450,104 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     } // TODO test
 
+    /**
+     * Visits a statement. While collecting errors, an error is added to {@link
+     * #errors} instead of being thrown.
+     */
+    private void visitStatement(Ast.Stmt stmt) {
+        if (errors == null) {
+            visit(stmt);
+            return;
+        }
+        try {
+            visit(stmt);
+        } catch (RuntimeException e) {
+            errors.add(e);
+            if (stmt instanceof Ast.Stmt.Declaration) {
+                defineRecovered(((Ast.Stmt.Declaration) stmt).getName(), ((Ast.Stmt.Declaration) stmt).getTypeName());
+            }
+        }
+    }
+
+    /**
+     * Defines a variable whose declaration failed, unless it is already
+     * defined in the current scope.
+     */
+    private void defineRecovered(String name, Optional<String> typeName) {
+        Environment.Type type = Environment.Type.ANY;
+        try {
+            if (typeName.isPresent()) {
+                type = Environment.getType(typeName.get());
+            }
+        } catch (RuntimeException e) {
+            // The unknown type has been reported, so the variable is Any.
+        }
+        try {
+            scope.defineVariable(name, name, type, Environment.NIL);
+        } catch (RuntimeException e) {
+            // Already defined, such as by the declaration which failed.
+        }
+    }
+
+    /**
+     * Looks up a function, skipping methods declared after the method being
+     * checked, which a sequential analysis would not have declared yet.
+     */
+    private Environment.Function lookupFunction(String name, int arity) {
+        Integer declared = declarations.get(name + "/" + arity);
+        if (declared != null && declared > index) {
+            if (sourceScope.getParent() == null) {
+                throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+            }
+            return sourceScope.getParent().lookupFunction(name, arity);
+        }
+        return scope.lookupFunction(name, arity);
+    }
+
+    /**
+     * Checks the bodies of the methods between {@code from} and {@code to},
+     * splitting the range in half while it has more than {@link #THRESHOLD}
+     * methods. The error of each method, if any, is stored in {@code errors}.
+     */
+    private static final class MethodsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+
+        private final Scope scope;
+        private final Map<String, Integer> declarations;
+        private final List<Ast.Method> methods;
+        private final RuntimeException[] errors;
+        private final int from;
+        private final int to;
+
+        private MethodsTask(Scope scope, Map<String, Integer> declarations, List<Ast.Method> methods, RuntimeException[] errors, int from, int to) {
+            this.scope = scope;
+            this.declarations = declarations;
+            this.methods = methods;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MethodsTask(scope, declarations, methods, errors, from, middle), new MethodsTask(scope, declarations, methods, errors, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    new Analyzer(scope, declarations, i).visitStatements(methods.get(i));
+                } catch (RuntimeException e) {
+                    errors[i] = e;
+                }
+            }
+        }
+
+    }
+
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
         if (!target.equals(Environment.Type.ANY)) {
             if (target.equals(Environment.Type.COMPARABLE)) {
@@ -15,6 +15,7 @@ public abstract class Ast {
 
         private final List<Field> fields;
         private final List<Method> methods;
+        private int frameSize = -1;
 
         public Source(List<Field> fields, List<Method> methods) {
             this.fields = fields;
@@ -29,6 +30,18 @@ public abstract class Ast {
             return methods;
         }
 
+        /**
+         * Returns the number of slots the {@link Resolver} assigned to fields,
+         * or -1 if the source has not been resolved.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -52,6 +65,7 @@ public abstract class Ast {
         private final String typeName;
         private final Optional<Expr> value;
         private Environment.Variable variable = null;
+        private int slot = -1;
 
         public Field(String name, Optional<Expr> value) {
             this(name, "Any", value);
@@ -86,6 +100,18 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        /**
+         * Returns the frame slot assigned by the {@link Resolver}, or -1
+         * if this node has not been resolved.
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Field &&
@@ -115,6 +141,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Stmt> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
 
         public Method(String name, List<String> parameters, List<Stmt> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -162,6 +189,19 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots the {@link Resolver} assigned to the
+         * parameters and local variables, or -1 if the method has not been
+         * resolved. Parameters occupy the first slots, in order.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Method &&
@@ -222,6 +262,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private final Optional<Expr> value;
             private Environment.Variable variable;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Expr> value) {
                 this(name, Optional.empty(), value);
@@ -256,6 +297,18 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the frame slot assigned by the {@link Resolver}, or -1
+             * if this node has not been resolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -361,6 +414,7 @@ public abstract class Ast {
             private final String name;
             private final Expr value;
             private final List<Stmt> statements;
+            private int slot = -1;
 
             public For(String name, Expr value, List<Stmt> statements) {
                 this.name = name;
@@ -380,6 +434,18 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns the frame slot assigned by the {@link Resolver}, or -1
+             * if this node has not been resolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof For &&
@@ -471,15 +537,26 @@ public abstract class Ast {
 
             private final Object literal;
             private Environment.Type type = null;
+            private final Environment.PlcObject object;
 
             public Literal(Object literal) {
                 this.literal = literal;
+                this.object = literal == null ? Environment.NIL : Environment.create(literal);
             }
 
             public Object getLiteral() {
                 return literal;
             }
 
+            /**
+             * Returns the object this literal evaluates to, which is created
+             * with the literal and shared by every evaluation, including
+             * evaluations on other threads.
+             */
+            public Environment.PlcObject getObject() {
+                return object;
+            }
+
             @Override
             public Environment.Type getType() {
                 if (type == null) {
@@ -553,12 +630,14 @@ public abstract class Ast {
         public static final class Binary extends Expr {
 
             private final String operator;
+            private final Operator kind;
             private final Expr left;
             private final Expr right;
             private Environment.Type type = null;
 
             public Binary(String operator, Expr left, Expr right) {
                 this.operator = operator;
+                this.kind = Operator.of(operator);
                 this.left = left;
                 this.right = right;
             }
@@ -567,6 +646,14 @@ public abstract class Ast {
                 return operator;
             }
 
+            /**
+             * Returns the operator resolved when the node was constructed, or
+             * {@code null} if the operator literal is not a known operator.
+             */
+            public Operator getOperatorKind() {
+                return kind;
+            }
+
             public Expr getLeft() {
                 return left;
             }
@@ -606,6 +693,41 @@ public abstract class Ast {
                         '}';
             }
 
+            public enum Operator {
+                AND("AND"),
+                OR("OR"),
+                LESS("<"),
+                LESS_EQUAL("<="),
+                GREATER(">"),
+                GREATER_EQUAL(">="),
+                EQUAL("=="),
+                NOT_EQUAL("!="),
+                ADD("+"),
+                SUBTRACT("-"),
+                MULTIPLY("*"),
+                DIVIDE("/");
+
+                private final String literal;
+
+                Operator(String literal) {
+                    this.literal = literal;
+                }
+
+                public String getLiteral() {
+                    return literal;
+                }
+
+                public static Operator of(String literal) {
+                    for (Operator operator : values()) {
+                        if (operator.literal.equals(literal)) {
+                            return operator;
+                        }
+                    }
+                    return null;
+                }
+
+            }
+
         }
 
         public static final class Access extends Expr {
@@ -613,6 +735,8 @@ public abstract class Ast {
             private final Optional<Expr> receiver;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Expr> receiver, String name) {
                 this.receiver = receiver;
@@ -638,6 +762,28 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the number of frames between the frame in which the
+             * access is evaluated and the frame holding the variable, or -1 if
+             * the {@link Resolver} left the access to be looked up by name.
+             */
+            public int getDepth() {
+                return depth;
+            }
+
+            /**
+             * Returns the slot of the variable within its frame, or -1 if the
+             * access is looked up by name.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int depth, int slot) {
+                this.depth = depth;
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
@@ -667,12 +813,14 @@ public abstract class Ast {
             private final Optional<Expr> receiver;
             private final String name;
             private final List<Expr> arguments;
+            private final MethodCache cache;
             private Environment.Function function = null;
 
             public Function(Optional<Expr> receiver, String name, List<Expr> arguments) {
                 this.receiver = receiver;
                 this.name = name;
                 this.arguments = arguments;
+                this.cache = receiver.isPresent() ? new MethodCache(name, arguments.size()) : null;
             }
 
             public Optional<Expr> getReceiver() {
@@ -694,6 +842,14 @@ public abstract class Ast {
                 return function;
             }
 
+            /**
+             * Returns the inline cache of the methods called by this call site,
+             * which is null if the call has no receiver.
+             */
+            MethodCache getCache() {
+                return cache;
+            }
+
             public void setFunction(Environment.Function function) {
                 this.function = function;
             }
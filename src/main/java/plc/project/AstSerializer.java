@@ -0,0 +1,613 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Serializes an analyzed {@link Ast.Source} to a compact binary format and
+ * reads it back, so a program can be loaded without lexing, parsing, and
+ * analyzing it again. Slots assigned by the {@link Resolver} are kept too.
+ *
+ * The format starts with a header of a magic number and a version, followed
+ * by a table of strings, tables of the variables and functions the tree
+ * refers to, and the tree itself. Integers are written as variable-length
+ * quantities and names as indices into the string table. Types are written by
+ * name and read back as the registered {@link Environment.Type}, and each
+ * variable and function is read back as one object shared by every node that
+ * refers to it.
+ */
+public final class AstSerializer {
+
+    static final int MAGIC = 0x504C4341;
+    static final int VERSION = 1;
+
+    private static final int EXPRESSION = 0;
+    private static final int DECLARATION = 1;
+    private static final int ASSIGNMENT = 2;
+    private static final int IF = 3;
+    private static final int FOR = 4;
+    private static final int WHILE = 5;
+    private static final int RETURN = 6;
+    private static final int LITERAL = 7;
+    private static final int GROUP = 8;
+    private static final int BINARY = 9;
+    private static final int ACCESS = 10;
+    private static final int FUNCTION = 11;
+
+    private static final int NIL = 0;
+    private static final int BOOLEAN = 1;
+    private static final int INTEGER = 2;
+    private static final int DECIMAL = 3;
+    private static final int CHARACTER = 4;
+    private static final int STRING = 5;
+
+    private AstSerializer() {}
+
+    public static byte[] serialize(Ast.Source ast) {
+        return new Writer().write(ast);
+    }
+
+    public static void serialize(Ast.Source ast, Path path) {
+        try {
+            Files.write(path, serialize(ast));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Ast.Source deserialize(byte[] bytes) {
+        return deserialize(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a source from a file, which is mapped into memory rather than
+     * copied.
+     */
+    public static Ast.Source deserialize(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return deserialize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Ast.Source deserialize(ByteBuffer buffer) {
+        return new Reader(buffer).read();
+    }
+
+    /**
+     * Writes the tree to a buffer while collecting the strings, variables,
+     * and functions it refers to, which are written before it.
+     */
+    private static final class Writer implements Ast.Visitor<Void> {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<Environment.Variable, Integer> variables = new IdentityHashMap<>();
+        private final Map<Environment.Function, Integer> functions = new IdentityHashMap<>();
+        private final List<Environment.Variable> variableList = new ArrayList<>();
+        private final List<Environment.Function> functionList = new ArrayList<>();
+        private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private byte[] write(Ast.Source ast) {
+            visit(ast);
+            ByteArrayOutputStream tree = out;
+            // The symbols add their names and types to the strings, so they
+            // are written before the string table is.
+            ByteArrayOutputStream symbols = out = new ByteArrayOutputStream();
+            writeCount(variableList.size());
+            for (Environment.Variable variable : variableList) {
+                writeString(variable.getName());
+                writeString(variable.getJvmName());
+                writeType(variable.getType());
+            }
+            writeCount(functionList.size());
+            for (Environment.Function function : functionList) {
+                writeString(function.getName());
+                writeString(function.getJvmName());
+                writeCount(function.getParameterTypes().size());
+                for (Environment.Type type : function.getParameterTypes()) {
+                    writeType(type);
+                }
+                writeType(function.getReturnType());
+            }
+            out = new ByteArrayOutputStream();
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeCount(strings.size());
+            for (String string : strings.keySet()) {
+                writeBytes(string.getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                symbols.writeTo(out);
+                tree.writeTo(out);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            writeCount(ast.getFields().size());
+            for (Ast.Field field : ast.getFields()) {
+                visit(field);
+            }
+            writeCount(ast.getMethods().size());
+            for (Ast.Method method : ast.getMethods()) {
+                visit(method);
+            }
+            writeIndex(ast.getFrameSize());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            writeString(ast.getName());
+            writeString(ast.getTypeName());
+            writeOptional(ast.getValue());
+            writeVariable(ast.getVariable());
+            writeIndex(ast.getSlot());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            writeString(ast.getName());
+            writeStrings(ast.getParameters());
+            writeStrings(ast.getParameterTypeNames());
+            out.write(ast.getReturnTypeName().isPresent() ? 1 : 0);
+            ast.getReturnTypeName().ifPresent(this::writeString);
+            writeStatements(ast.getStatements());
+            writeFunction(ast.getFunction());
+            writeIndex(ast.getFrameSize());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            out.write(EXPRESSION);
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            out.write(DECLARATION);
+            writeString(ast.getName());
+            out.write(ast.getTypeName().isPresent() ? 1 : 0);
+            ast.getTypeName().ifPresent(this::writeString);
+            writeOptional(ast.getValue());
+            writeVariable(ast.getVariable());
+            writeIndex(ast.getSlot());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            out.write(ASSIGNMENT);
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            out.write(IF);
+            visit(ast.getCondition());
+            writeStatements(ast.getThenStatements());
+            writeStatements(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            out.write(FOR);
+            writeString(ast.getName());
+            visit(ast.getValue());
+            writeStatements(ast.getStatements());
+            writeIndex(ast.getSlot());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            out.write(WHILE);
+            visit(ast.getCondition());
+            writeStatements(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            out.write(RETURN);
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            out.write(LITERAL);
+            Object literal = ast.getLiteral();
+            if (literal == null) {
+                out.write(NIL);
+            } else if (literal instanceof Boolean) {
+                out.write(BOOLEAN);
+                out.write((Boolean) literal ? 1 : 0);
+            } else if (literal instanceof BigInteger) {
+                out.write(INTEGER);
+                writeBytes(((BigInteger) literal).toByteArray());
+            } else if (literal instanceof BigDecimal) {
+                out.write(DECIMAL);
+                writeBytes(((BigDecimal) literal).unscaledValue().toByteArray());
+                writeSigned(((BigDecimal) literal).scale());
+            } else if (literal instanceof Character) {
+                out.write(CHARACTER);
+                writeCount((Character) literal);
+            } else if (literal instanceof String) {
+                out.write(STRING);
+                writeString((String) literal);
+            } else {
+                throw new RuntimeException("Unable to serialize a literal of type " + literal.getClass().getName() + ".");
+            }
+            writeType(ast.getType());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            out.write(GROUP);
+            visit(ast.getExpression());
+            writeType(ast.getType());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            out.write(BINARY);
+            writeString(ast.getOperator());
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            writeType(ast.getType());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            out.write(ACCESS);
+            writeOptional(ast.getReceiver());
+            writeString(ast.getName());
+            writeVariable(ast.getVariable());
+            writeIndex(ast.getDepth());
+            writeIndex(ast.getSlot());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            out.write(FUNCTION);
+            writeOptional(ast.getReceiver());
+            writeString(ast.getName());
+            writeCount(ast.getArguments().size());
+            for (Ast.Expr argument : ast.getArguments()) {
+                visit(argument);
+            }
+            writeFunction(ast.getFunction());
+            return null;
+        }
+
+        private void writeStatements(List<Ast.Stmt> statements) {
+            writeCount(statements.size());
+            for (Ast.Stmt stmt : statements) {
+                visit(stmt);
+            }
+        }
+
+        private void writeOptional(Optional<Ast.Expr> expr) {
+            out.write(expr.isPresent() ? 1 : 0);
+            expr.ifPresent(this::visit);
+        }
+
+        private void writeStrings(List<String> values) {
+            writeCount(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeString(String value) {
+            writeCount(strings.computeIfAbsent(value, key -> strings.size()));
+        }
+
+        private void writeType(Environment.Type type) {
+            writeString(type.getName());
+        }
+
+        private void writeVariable(Environment.Variable variable) {
+            writeCount(variables.computeIfAbsent(variable, key -> {
+                variableList.add(key);
+                return variableList.size() - 1;
+            }));
+        }
+
+        private void writeFunction(Environment.Function function) {
+            writeCount(functions.computeIfAbsent(function, key -> {
+                functionList.add(key);
+                return functionList.size() - 1;
+            }));
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeCount(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeInt(int value) {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        /**
+         * Writes a slot, depth, or frame size, which is -1 if unresolved.
+         */
+        private void writeIndex(int value) {
+            writeCount(value + 1);
+        }
+
+        private void writeSigned(int value) {
+            writeCount((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * Writes a non-negative integer in groups of seven bits, least
+         * significant first, with the high bit set on all but the last.
+         */
+        private void writeCount(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+        private String[] strings;
+        private Environment.Variable[] variables;
+        private Environment.Function[] functions;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private Ast.Source read() {
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new RuntimeException("Expected a serialized AST.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new RuntimeException("Unsupported serialized AST version " + version + ", expected " + VERSION + ".");
+            }
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readCount()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            variables = new Environment.Variable[readCount()];
+            for (int i = 0; i < variables.length; i++) {
+                variables[i] = new Environment.Variable(readString(), readString(), readType(), Environment.NIL);
+            }
+            functions = new Environment.Function[readCount()];
+            for (int i = 0; i < functions.length; i++) {
+                String name = readString();
+                String jvmName = readString();
+                List<Environment.Type> parameterTypes = new ArrayList<>();
+                for (int count = readCount(); parameterTypes.size() < count; ) {
+                    parameterTypes.add(readType());
+                }
+                functions[i] = new Environment.Function(name, jvmName, parameterTypes, readType(), args -> Environment.NIL);
+            }
+            return readSource();
+        }
+
+        private Ast.Source readSource() {
+            List<Ast.Field> fields = new ArrayList<>();
+            for (int count = readCount(); fields.size() < count; ) {
+                fields.add(readField());
+            }
+            List<Ast.Method> methods = new ArrayList<>();
+            for (int count = readCount(); methods.size() < count; ) {
+                methods.add(readMethod());
+            }
+            Ast.Source ast = new Ast.Source(fields, methods);
+            ast.setFrameSize(readIndex());
+            return ast;
+        }
+
+        private Ast.Field readField() {
+            Ast.Field ast = new Ast.Field(readString(), readString(), readOptional());
+            ast.setVariable(variables[readCount()]);
+            ast.setSlot(readIndex());
+            return ast;
+        }
+
+        private Ast.Method readMethod() {
+            String name = readString();
+            List<String> parameters = readStrings();
+            List<String> parameterTypeNames = readStrings();
+            Optional<String> returnTypeName = buffer.get() != 0 ? Optional.of(readString()) : Optional.empty();
+            Ast.Method ast = new Ast.Method(name, parameters, parameterTypeNames, returnTypeName, readStatements());
+            ast.setFunction(functions[readCount()]);
+            ast.setFrameSize(readIndex());
+            return ast;
+        }
+
+        private Ast.Stmt readStatement() {
+            int tag = buffer.get();
+            switch (tag) {
+                case EXPRESSION:
+                    return new Ast.Stmt.Expression(readExpression());
+                case DECLARATION: {
+                    String name = readString();
+                    Optional<String> typeName = buffer.get() != 0 ? Optional.of(readString()) : Optional.empty();
+                    Ast.Stmt.Declaration ast = new Ast.Stmt.Declaration(name, typeName, readOptional());
+                    ast.setVariable(variables[readCount()]);
+                    ast.setSlot(readIndex());
+                    return ast;
+                }
+                case ASSIGNMENT:
+                    return new Ast.Stmt.Assignment(readExpression(), readExpression());
+                case IF:
+                    return new Ast.Stmt.If(readExpression(), readStatements(), readStatements());
+                case FOR: {
+                    Ast.Stmt.For ast = new Ast.Stmt.For(readString(), readExpression(), readStatements());
+                    ast.setSlot(readIndex());
+                    return ast;
+                }
+                case WHILE:
+                    return new Ast.Stmt.While(readExpression(), readStatements());
+                case RETURN:
+                    return new Ast.Stmt.Return(readExpression());
+                default:
+                    throw new RuntimeException("Invalid statement tag " + tag + ".");
+            }
+        }
+
+        private Ast.Expr readExpression() {
+            int tag = buffer.get();
+            switch (tag) {
+                case LITERAL: {
+                    Ast.Expr.Literal ast = new Ast.Expr.Literal(readLiteral());
+                    ast.setType(readType());
+                    return ast;
+                }
+                case GROUP: {
+                    Ast.Expr.Group ast = new Ast.Expr.Group(readExpression());
+                    ast.setType(readType());
+                    return ast;
+                }
+                case BINARY: {
+                    Ast.Expr.Binary ast = new Ast.Expr.Binary(readString(), readExpression(), readExpression());
+                    ast.setType(readType());
+                    return ast;
+                }
+                case ACCESS: {
+                    Ast.Expr.Access ast = new Ast.Expr.Access(readOptional(), readString());
+                    ast.setVariable(variables[readCount()]);
+                    int depth = readIndex();
+                    ast.setSlot(depth, readIndex());
+                    return ast;
+                }
+                case FUNCTION: {
+                    Optional<Ast.Expr> receiver = readOptional();
+                    String name = readString();
+                    List<Ast.Expr> arguments = new ArrayList<>();
+                    for (int count = readCount(); arguments.size() < count; ) {
+                        arguments.add(readExpression());
+                    }
+                    Ast.Expr.Function ast = new Ast.Expr.Function(receiver, name, arguments);
+                    ast.setFunction(functions[readCount()]);
+                    return ast;
+                }
+                default:
+                    throw new RuntimeException("Invalid expression tag " + tag + ".");
+            }
+        }
+
+        private Object readLiteral() {
+            int tag = buffer.get();
+            switch (tag) {
+                case NIL:
+                    return null;
+                case BOOLEAN:
+                    return buffer.get() != 0;
+                case INTEGER:
+                    return new BigInteger(readBytes());
+                case DECIMAL:
+                    return new BigDecimal(new BigInteger(readBytes()), readSigned());
+                case CHARACTER:
+                    return (char) readCount();
+                case STRING:
+                    return readString();
+                default:
+                    throw new RuntimeException("Invalid literal tag " + tag + ".");
+            }
+        }
+
+        private List<Ast.Stmt> readStatements() {
+            List<Ast.Stmt> statements = new ArrayList<>();
+            for (int count = readCount(); statements.size() < count; ) {
+                statements.add(readStatement());
+            }
+            return statements;
+        }
+
+        private Optional<Ast.Expr> readOptional() {
+            return buffer.get() != 0 ? Optional.of(readExpression()) : Optional.empty();
+        }
+
+        private List<String> readStrings() {
+            List<String> values = new ArrayList<>();
+            for (int count = readCount(); values.size() < count; ) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() {
+            return strings[readCount()];
+        }
+
+        private Environment.Type readType() {
+            return Environment.getType(readString());
+        }
+
+        private byte[] readBytes() {
+            byte[] bytes = new byte[readCount()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private int readIndex() {
+            return readCount() - 1;
+        }
+
+        private int readSigned() {
+            int value = readCount();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readCount() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+    }
+
+}
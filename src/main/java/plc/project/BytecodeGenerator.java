@@ -0,0 +1,1118 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles an analyzed {@link Ast.Source} directly into the bytes of a JVM
+ * class, with the same layout and type mapping ({@link
+ * Environment.Type#getJvmName()}) as the Java source emitted by the {@link
+ * Generator}: fields and methods are members of the class, and a static
+ * {@code main(String[])} exits with the result of {@code main()}. The class can
+ * be loaded with {@link #define(String, byte[])} and runs without a javac round
+ * trip.
+ *
+ * Locals use the slots assigned by the {@link Resolver}, which is run first if
+ * the source has not been resolved. Classes are written in the version 49
+ * format, which the JVM verifies by type inference, so no stack map frames are
+ * needed.
+ */
+public final class BytecodeGenerator implements Ast.Visitor<Void> {
+
+    private static final int VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ACONST_NULL = 1;
+    private static final int ICONST_0 = 3;
+    private static final int DCONST_0 = 14;
+    private static final int DCONST_1 = 15;
+    private static final int BIPUSH = 16;
+    private static final int SIPUSH = 17;
+    private static final int LDC = 18;
+    private static final int LDC_W = 19;
+    private static final int LDC2_W = 20;
+    private static final int ILOAD = 21;
+    private static final int DLOAD = 24;
+    private static final int ALOAD = 25;
+    private static final int ISTORE = 54;
+    private static final int DSTORE = 57;
+    private static final int ASTORE = 58;
+    private static final int POP = 87;
+    private static final int POP2 = 88;
+    private static final int DUP = 89;
+    private static final int IADD = 96;
+    private static final int DADD = 99;
+    private static final int ISUB = 100;
+    private static final int DSUB = 103;
+    private static final int IMUL = 104;
+    private static final int DMUL = 107;
+    private static final int IDIV = 108;
+    private static final int DDIV = 111;
+    private static final int I2D = 135;
+    private static final int DCMPL = 151;
+    private static final int DCMPG = 152;
+    private static final int IFEQ = 153;
+    private static final int IFNE = 154;
+    private static final int IFLT = 155;
+    private static final int IFGE = 156;
+    private static final int IFGT = 157;
+    private static final int IFLE = 158;
+    private static final int IF_ICMPEQ = 159;
+    private static final int GOTO = 167;
+    private static final int IRETURN = 172;
+    private static final int DRETURN = 175;
+    private static final int ARETURN = 176;
+    private static final int RETURN = 177;
+    private static final int GETSTATIC = 178;
+    private static final int GETFIELD = 180;
+    private static final int PUTFIELD = 181;
+    private static final int INVOKEVIRTUAL = 182;
+    private static final int INVOKESPECIAL = 183;
+    private static final int INVOKESTATIC = 184;
+    private static final int INVOKEINTERFACE = 185;
+    private static final int NEW = 187;
+    private static final int CHECKCAST = 192;
+    private static final int WIDE = 196;
+
+    private final String className;
+    private ClassFile classFile;
+    private Code code;
+    private String[] locals;
+    private String returnDescriptor;
+    private int iterators;
+
+    public BytecodeGenerator(String className) {
+        this.className = className.replace('.', '/');
+    }
+
+    /**
+     * Returns the class file for the source, which must have been analyzed by
+     * the {@link Analyzer}.
+     */
+    public byte[] generate(Ast.Source ast) {
+        if (ast.getFrameSize() < 0) {
+            new Resolver().visit(ast);
+        }
+        visit(ast);
+        return classFile.toByteArray();
+    }
+
+    /**
+     * Defines a generated class in a new class loader, so the same name can be
+     * defined more than once.
+     */
+    public static Class<?> define(String className, byte[] bytes) {
+        return new Loader(BytecodeGenerator.class.getClassLoader()).define(className, bytes);
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        classFile = new ClassFile(className);
+        // Methods are declared before any code is generated, so a method can
+        // call itself or a method defined after it.
+        for (Ast.Method method : ast.getMethods()) {
+            classFile.declare(method.getName(), methodDescriptor(method.getFunction()));
+        }
+
+        code = new Code();
+        locals = new String[0];
+        code.load("L" + className + ";", 0);
+        code.invoke(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        code.op(RETURN, 0);
+        classFile.method(ACC_PUBLIC, "<init>", "()V", code);
+
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+
+        for (Ast.Method method : ast.getMethods()) {
+            if (method.getName().equals("main") && method.getParameters().isEmpty()) {
+                code = new Code();
+                code.type(NEW, className, 1);
+                code.op(DUP, 1);
+                code.invoke(INVOKESPECIAL, className, "<init>", "()V");
+                String descriptor = methodDescriptor(method.getFunction());
+                code.invoke(INVOKEVIRTUAL, className, "main", descriptor);
+                coerce(returnDescriptor(descriptor), "I");
+                code.invoke(INVOKESTATIC, "java/lang/System", "exit", "(I)V");
+                code.op(RETURN, 0);
+                code.local(1);
+                classFile.method(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", code);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        String descriptor = descriptor(ast.getVariable().getType());
+        classFile.field(0, ast.getVariable().getJvmName(), descriptor);
+        if (ast.getValue().isPresent()) {
+            code.load("L" + className + ";", 0);
+            push(ast.getValue().get(), descriptor);
+            code.field(PUTFIELD, className, ast.getVariable().getJvmName(), descriptor);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        code = new Code();
+        locals = new String[ast.getFrameSize()];
+        iterators = 1 + 2 * ast.getFrameSize();
+        code.local(iterators);
+        int[] arguments = new int[ast.getParameters().size()];
+        for (int i = 0, position = 1; i < arguments.length; i++) {
+            locals[i] = descriptor(Environment.getType(ast.getParameterTypeNames().get(i)));
+            arguments[i] = position;
+            position += size(locals[i]);
+        }
+        // Arguments are passed in consecutive locals, so they are moved to
+        // the locals of their slots, last first to not overwrite any.
+        for (int i = arguments.length - 1; i >= 0; i--) {
+            if (arguments[i] != local(i)) {
+                code.load(locals[i], arguments[i]);
+                code.store(locals[i], local(i));
+            }
+        }
+        String descriptor = methodDescriptor(ast.getFunction());
+        returnDescriptor = returnDescriptor(descriptor);
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        // Methods which fall off the end return a default value, which only
+        // the verifier ever sees when every path returns.
+        pushDefault(returnDescriptor);
+        code.op(returnOpcode(returnDescriptor), -size(returnDescriptor));
+        classFile.method(0, ast.getName(), descriptor, code);
+        code = null;
+        locals = null;
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        String descriptor;
+        if (ast.getExpression() instanceof Ast.Expr.Function) {
+            descriptor = call((Ast.Expr.Function) ast.getExpression());
+        } else {
+            descriptor = descriptor(ast.getExpression().getType());
+            visit(ast.getExpression());
+        }
+        if (!descriptor.equals("V")) {
+            code.op(size(descriptor) == 2 ? POP2 : POP, -size(descriptor));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        String descriptor = descriptor(ast.getVariable().getType());
+        if (ast.getValue().isPresent()) {
+            push(ast.getValue().get(), descriptor);
+        } else {
+            pushDefault(descriptor);
+        }
+        locals[ast.getSlot()] = descriptor;
+        code.store(descriptor, local(ast.getSlot()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            throw new RuntimeException("Expected a receiver of type Ast.Expr.Access.");
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            throw new RuntimeException("Cannot assign the field " + access.getName() + " of a builtin type.");
+        } else if (isLocal(access)) {
+            String descriptor = locals[access.getSlot()];
+            push(ast.getValue(), descriptor);
+            code.store(descriptor, local(access.getSlot()));
+        } else {
+            String descriptor = descriptor(access.getVariable().getType());
+            code.load("L" + className + ";", 0);
+            push(ast.getValue(), descriptor);
+            code.field(PUTFIELD, className, access.getVariable().getJvmName(), descriptor);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        Label otherwise = new Label();
+        Label end = new Label();
+        push(ast.getCondition(), "Z");
+        code.jump(IFEQ, otherwise, -1);
+        for (Ast.Stmt stmt : ast.getThenStatements()) {
+            visit(stmt);
+        }
+        code.jump(GOTO, end, 0);
+        code.bind(otherwise);
+        for (Ast.Stmt stmt : ast.getElseStatements()) {
+            visit(stmt);
+        }
+        code.bind(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        int iterator = iterators++;
+        code.local(iterators);
+        Label start = new Label();
+        Label end = new Label();
+        push(ast.getValue(), "Ljava/lang/Iterable;");
+        code.invoke(INVOKEINTERFACE, "java/lang/Iterable", "iterator", "()Ljava/util/Iterator;");
+        code.store("Ljava/util/Iterator;", iterator);
+        code.bind(start);
+        code.load("Ljava/util/Iterator;", iterator);
+        code.invoke(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+        code.jump(IFEQ, end, -1);
+        code.load("Ljava/util/Iterator;", iterator);
+        code.invoke(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;");
+        coerce("Ljava/lang/Object;", "I");
+        locals[ast.getSlot()] = "I";
+        code.store("I", local(ast.getSlot()));
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        code.jump(GOTO, start, 0);
+        code.bind(end);
+        iterators--;
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        Label start = new Label();
+        Label end = new Label();
+        code.bind(start);
+        push(ast.getCondition(), "Z");
+        code.jump(IFEQ, end, -1);
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        code.jump(GOTO, start, 0);
+        code.bind(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        if (returnDescriptor.equals("V")) {
+            visit(new Ast.Stmt.Expression(ast.getValue()));
+        } else {
+            push(ast.getValue(), returnDescriptor);
+        }
+        code.op(returnOpcode(returnDescriptor), -size(returnDescriptor));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        Object literal = ast.getLiteral();
+        if (literal == null) {
+            code.op(ACONST_NULL, 1);
+        } else if (literal instanceof Boolean) {
+            code.push((Boolean) literal ? 1 : 0);
+        } else if (literal instanceof Character) {
+            code.push((Character) literal);
+        } else if (literal instanceof BigInteger) {
+            code.push(((BigInteger) literal).intValue());
+        } else if (literal instanceof BigDecimal) {
+            double value = ((BigDecimal) literal).doubleValue();
+            if (value == 0.0 && 1 / value > 0) {
+                code.op(DCONST_0, 2);
+            } else if (value == 1.0) {
+                code.op(DCONST_1, 2);
+            } else {
+                code.constant(LDC2_W, classFile.doubleConstant(value), 2);
+            }
+        } else {
+            int index = classFile.stringConstant(literal.toString());
+            code.constant(index <= 255 ? LDC : LDC_W, index, 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        Ast.Expr.Binary.Operator operator = ast.getOperatorKind();
+        if (operator == null) {
+            throw new RuntimeException("Error, invalid binary expression.");
+        }
+        switch (operator) {
+            case AND:
+            case OR:
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                Label isTrue = new Label();
+                Label end = new Label();
+                condition(ast, isTrue);
+                code.push(0);
+                code.jump(GOTO, end, 0);
+                code.bind(isTrue);
+                code.push(1);
+                code.bind(end);
+                break;
+            case ADD:
+                if (ast.getType().equals(Environment.Type.STRING)) {
+                    code.type(NEW, "java/lang/StringBuilder", 1);
+                    code.op(DUP, 1);
+                    code.invoke(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+                    append(ast.getLeft());
+                    append(ast.getRight());
+                    code.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+                } else {
+                    arithmetic(ast, IADD);
+                }
+                break;
+            case SUBTRACT:
+                arithmetic(ast, ISUB);
+                break;
+            case MULTIPLY:
+                arithmetic(ast, IMUL);
+                break;
+            case DIVIDE:
+                arithmetic(ast, IDIV);
+                break;
+            default:
+                throw new RuntimeException("Error, invalid binary expression.");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        String descriptor = descriptor(ast.getType());
+        if (ast.getReceiver().isPresent()) {
+            String owner = visitReceiver(ast.getReceiver().get());
+            String name = ast.getVariable().getJvmName();
+            if (name.endsWith("()")) {
+                invoke(owner, name.substring(0, name.length() - 2), "()" + descriptor);
+            } else {
+                code.field(GETFIELD, owner, name, descriptor);
+            }
+        } else if (isLocal(ast)) {
+            code.load(locals[ast.getSlot()], local(ast.getSlot()));
+            coerce(locals[ast.getSlot()], descriptor);
+        } else {
+            code.load("L" + className + ";", 0);
+            code.field(GETFIELD, className, ast.getVariable().getJvmName(), descriptor);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        String descriptor = call(ast);
+        if (descriptor.equals("V")) {
+            code.op(ACONST_NULL, 1);
+        } else {
+            coerce(descriptor, descriptor(ast.getType()));
+        }
+        return null;
+    }
+
+    /**
+     * Emits a call, leaving its result (if any) on the stack, and returns the
+     * descriptor of the result.
+     */
+    private String call(Ast.Expr.Function ast) {
+        Environment.Function function = ast.getFunction();
+        List<Environment.Type> parameters = function.getParameterTypes();
+        if (ast.getReceiver().isPresent()) {
+            String owner = visitReceiver(ast.getReceiver().get());
+            StringBuilder descriptor = new StringBuilder("(");
+            for (int i = 0; i < ast.getArguments().size(); i++) {
+                String parameter = descriptor(parameters.get(i + 1));
+                push(ast.getArguments().get(i), parameter);
+                descriptor.append(parameter);
+            }
+            descriptor.append(')').append(returnDescriptor(function.getReturnType()));
+            invoke(owner, function.getJvmName(), descriptor.toString());
+            return returnDescriptor(function.getReturnType());
+        } else if (function.getJvmName().equals("System.out.println")) {
+            code.field(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+            Ast.Expr argument = ast.getArguments().get(0);
+            String descriptor = descriptor(argument.getType());
+            if (descriptor.length() > 1 && !descriptor.equals("Ljava/lang/String;")) {
+                descriptor = "Ljava/lang/Object;";
+            }
+            push(argument, descriptor);
+            code.invoke(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(" + descriptor + ")V");
+            return "V";
+        } else {
+            String descriptor = methodDescriptor(function);
+            if (!classFile.hasMethod(function.getJvmName(), descriptor)) {
+                throw new RuntimeException("The function " + function.getName() + "/" + parameters.size() + " is not defined in the source.");
+            }
+            code.load("L" + className + ";", 0);
+            for (int i = 0; i < ast.getArguments().size(); i++) {
+                push(ast.getArguments().get(i), descriptor(parameters.get(i)));
+            }
+            code.invoke(INVOKEVIRTUAL, className, function.getJvmName(), descriptor);
+            return returnDescriptor(descriptor);
+        }
+    }
+
+    /**
+     * Emits a receiver and returns the internal name of its class.
+     */
+    private String visitReceiver(Ast.Expr receiver) {
+        String descriptor = descriptor(receiver.getType());
+        if (descriptor.length() == 1) {
+            push(receiver, box(descriptor));
+            descriptor = box(descriptor);
+        } else {
+            visit(receiver);
+        }
+        return descriptor.substring(1, descriptor.length() - 1);
+    }
+
+    private void invoke(String owner, String name, String descriptor) {
+        boolean isInterface;
+        try {
+            isInterface = Class.forName(owner.replace('/', '.')).isInterface();
+        } catch (ClassNotFoundException e) {
+            isInterface = false;
+        }
+        code.invoke(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL, owner, name, descriptor);
+    }
+
+    /**
+     * Emits a boolean expression as a jump to the given label when it is true,
+     * falling through otherwise.
+     */
+    private void condition(Ast.Expr ast, Label isTrue) {
+        while (ast instanceof Ast.Expr.Group) {
+            ast = ((Ast.Expr.Group) ast).getExpression();
+        }
+        Ast.Expr.Binary.Operator operator = ast instanceof Ast.Expr.Binary ? ((Ast.Expr.Binary) ast).getOperatorKind() : null;
+        if (operator == null) {
+            push(ast, "Z");
+            code.jump(IFNE, isTrue, -1);
+            return;
+        }
+        Ast.Expr left = ((Ast.Expr.Binary) ast).getLeft();
+        Ast.Expr right = ((Ast.Expr.Binary) ast).getRight();
+        switch (operator) {
+            case AND:
+                Label isFalse = new Label();
+                push(left, "Z");
+                code.jump(IFEQ, isFalse, -1);
+                condition(right, isTrue);
+                code.bind(isFalse);
+                return;
+            case OR:
+                condition(left, isTrue);
+                condition(right, isTrue);
+                return;
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                compare(operator, left, right, isTrue);
+                return;
+            default:
+                push(ast, "Z");
+                code.jump(IFNE, isTrue, -1);
+        }
+    }
+
+    private void compare(Ast.Expr.Binary.Operator operator, Ast.Expr left, Ast.Expr right, Label isTrue) {
+        String lhs = descriptor(left.getType());
+        String rhs = descriptor(right.getType());
+        int branch;
+        switch (operator) {
+            case EQUAL: branch = IFEQ; break;
+            case NOT_EQUAL: branch = IFNE; break;
+            case LESS: branch = IFLT; break;
+            case LESS_EQUAL: branch = IFLE; break;
+            case GREATER: branch = IFGT; break;
+            default: branch = IFGE; break;
+        }
+        if (isInteger(lhs) && isInteger(rhs)) {
+            push(left, "I");
+            push(right, "I");
+            code.jump(branch + IF_ICMPEQ - IFEQ, isTrue, -2);
+        } else if (isNumber(lhs) && isNumber(rhs)) {
+            push(left, "D");
+            push(right, "D");
+            // NaN compares so that every operator other than != is false.
+            boolean below = operator == Ast.Expr.Binary.Operator.LESS || operator == Ast.Expr.Binary.Operator.LESS_EQUAL;
+            code.op(below ? DCMPG : DCMPL, -3);
+            code.jump(branch, isTrue, -1);
+        } else if (operator == Ast.Expr.Binary.Operator.EQUAL || operator == Ast.Expr.Binary.Operator.NOT_EQUAL) {
+            push(left, "Ljava/lang/Object;");
+            push(right, "Ljava/lang/Object;");
+            code.invoke(INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+            code.jump(operator == Ast.Expr.Binary.Operator.EQUAL ? IFNE : IFEQ, isTrue, -1);
+        } else {
+            push(left, "Ljava/lang/Comparable;");
+            push(right, "Ljava/lang/Object;");
+            code.invoke(INVOKEINTERFACE, "java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+            code.jump(branch, isTrue, -1);
+        }
+    }
+
+    /**
+     * Emits numeric arithmetic, where {@code opcode} is the {@code int} form
+     * of the instruction and the {@code double} form is at the same offset
+     * from {@code DADD}.
+     */
+    private void arithmetic(Ast.Expr.Binary ast, int opcode) {
+        String descriptor = descriptor(ast.getType());
+        push(ast.getLeft(), descriptor);
+        push(ast.getRight(), descriptor);
+        if (descriptor.equals("D")) {
+            code.op(opcode + DADD - IADD, -2);
+        } else if (descriptor.equals("I")) {
+            code.op(opcode, -1);
+        } else {
+            throw new RuntimeException("Invalid binary expression.");
+        }
+    }
+
+    private void append(Ast.Expr ast) {
+        String descriptor = descriptor(ast.getType());
+        if (descriptor.length() > 1 && !descriptor.equals("Ljava/lang/String;")) {
+            descriptor = "Ljava/lang/Object;";
+        }
+        push(ast, descriptor);
+        code.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + descriptor + ")Ljava/lang/StringBuilder;");
+    }
+
+    /**
+     * Emits an expression converted to the given descriptor.
+     */
+    private void push(Ast.Expr ast, String descriptor) {
+        visit(ast);
+        coerce(descriptor(ast.getType()), descriptor);
+    }
+
+    /**
+     * Converts the value on top of the stack between descriptors, boxing,
+     * unboxing, widening, and casting as needed.
+     */
+    private void coerce(String from, String to) {
+        if (from.equals(to) || to.equals("V")) {
+            return;
+        } else if (from.length() == 1 && to.length() == 1) {
+            if (!isInteger(from) || !to.equals("D")) {
+                throw new RuntimeException("Cannot convert " + from + " to " + to + ".");
+            }
+            code.op(I2D, 1);
+        } else if (from.length() == 1) {
+            code.invoke(INVOKESTATIC, box(from).substring(1, box(from).length() - 1), "valueOf", "(" + from + ")" + box(from));
+            coerce(box(from), to);
+        } else if (to.length() == 1) {
+            String box = box(to);
+            code.type(CHECKCAST, box.substring(1, box.length() - 1), 0);
+            String name = to.equals("I") ? "intValue" : to.equals("D") ? "doubleValue" : to.equals("Z") ? "booleanValue" : "charValue";
+            code.invoke(INVOKEVIRTUAL, box.substring(1, box.length() - 1), name, "()" + to);
+        } else if (!to.equals("Ljava/lang/Object;")) {
+            code.type(CHECKCAST, to.substring(1, to.length() - 1), 0);
+        }
+    }
+
+    private void pushDefault(String descriptor) {
+        if (descriptor.equals("V")) {
+            return;
+        } else if (descriptor.equals("D")) {
+            code.op(DCONST_0, 2);
+        } else if (descriptor.length() == 1) {
+            code.push(0);
+        } else {
+            code.op(ACONST_NULL, 1);
+        }
+    }
+
+    /**
+     * Returns whether the access is to a local of the current method, rather
+     * than a field of the source.
+     */
+    private boolean isLocal(Ast.Expr.Access ast) {
+        if (ast.getSlot() < 0) {
+            throw new RuntimeException("The variable " + ast.getName() + " is not defined in the source.");
+        }
+        return locals.length > 0 && ast.getDepth() == 0;
+    }
+
+    private static int local(int slot) {
+        return 1 + 2 * slot;
+    }
+
+    private static String methodDescriptor(Environment.Function function) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Environment.Type type : function.getParameterTypes()) {
+            builder.append(descriptor(type));
+        }
+        return builder.append(')').append(returnDescriptor(function.getReturnType())).toString();
+    }
+
+    private static String returnDescriptor(Environment.Type type) {
+        return type.equals(Environment.Type.NIL) ? "V" : descriptor(type);
+    }
+
+    private static String returnDescriptor(String methodDescriptor) {
+        return methodDescriptor.substring(methodDescriptor.indexOf(')') + 1);
+    }
+
+    /**
+     * Returns the descriptor of a value of the given type, derived from its
+     * JVM name.
+     */
+    private static String descriptor(Environment.Type type) {
+        String name = type.getJvmName();
+        if (name.indexOf('<') >= 0) {
+            name = name.substring(0, name.indexOf('<'));
+        }
+        switch (name) {
+            case "int":
+                return "I";
+            case "double":
+                return "D";
+            case "boolean":
+                return "Z";
+            case "char":
+                return "C";
+            case "Void":
+                return "Ljava/lang/Object;";
+            default:
+                return "Ljava/lang/" + name + ";";
+        }
+    }
+
+    private static String box(String descriptor) {
+        switch (descriptor) {
+            case "I":
+                return "Ljava/lang/Integer;";
+            case "D":
+                return "Ljava/lang/Double;";
+            case "Z":
+                return "Ljava/lang/Boolean;";
+            case "C":
+                return "Ljava/lang/Character;";
+            default:
+                return descriptor;
+        }
+    }
+
+    private static boolean isInteger(String descriptor) {
+        return descriptor.equals("I") || descriptor.equals("C") || descriptor.equals("Z");
+    }
+
+    private static boolean isNumber(String descriptor) {
+        return isInteger(descriptor) || descriptor.equals("D");
+    }
+
+    private static int size(String descriptor) {
+        return descriptor.equals("V") ? 0 : descriptor.equals("D") || descriptor.equals("J") ? 2 : 1;
+    }
+
+    private static int returnOpcode(String descriptor) {
+        return descriptor.equals("V") ? RETURN
+                : descriptor.equals("D") ? DRETURN
+                : descriptor.length() == 1 ? IRETURN
+                : ARETURN;
+    }
+
+    /**
+     * The constant pool, fields, and methods of a class being written.
+     */
+    private static final class ClassFile {
+
+        private final Map<String, Integer> constants = new HashMap<>();
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+        private final List<String> methodNames = new ArrayList<>();
+        private final Set<String> declared = new HashSet<>();
+        private final int thisClass;
+        private final int superClass;
+        private int constantCount = 1;
+        private int fieldCount = 0;
+
+        private ClassFile(String name) {
+            thisClass = classConstant(name);
+            superClass = classConstant("java/lang/Object");
+        }
+
+        private void declare(String name, String descriptor) {
+            declared.add(name + descriptor);
+        }
+
+        private boolean hasMethod(String name, String descriptor) {
+            return declared.contains(name + descriptor);
+        }
+
+        private void field(int access, String name, String descriptor) {
+            DataOutputStream out = new DataOutputStream(fields);
+            write(() -> {
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(0);
+            });
+            fieldCount++;
+        }
+
+        private void method(int access, String name, String descriptor, Code code) {
+            if (code.length > 0xFFFF) {
+                throw new RuntimeException("The method " + name + " is too large to compile.");
+            }
+            DataOutputStream out = new DataOutputStream(methods);
+            int attribute = utf8("Code");
+            write(() -> {
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(attribute);
+                out.writeInt(12 + code.length);
+                out.writeShort(code.maxStack);
+                out.writeShort(Math.max(code.maxLocals, argumentSize(descriptor) + ((access & ACC_STATIC) != 0 ? 0 : 1)));
+                out.writeInt(code.length);
+                out.write(code.bytes, 0, code.length);
+                out.writeShort(0);
+                out.writeShort(0);
+            });
+            methodNames.add(name);
+        }
+
+        private byte[] toByteArray() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            write(() -> {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(VERSION);
+                out.writeShort(constantCount);
+                pool.writeTo(out);
+                out.writeShort(ACC_PUBLIC | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0);
+                out.writeShort(fieldCount);
+                fields.writeTo(out);
+                out.writeShort(methodNames.size());
+                methods.writeTo(out);
+                out.writeShort(0);
+            });
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Adds a Utf8 constant, whose modified UTF-8 encoding is limited to
+         * 65535 bytes by the class file format.
+         */
+        private int utf8(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+            }
+            if (length > 0xFFFF) {
+                throw new RuntimeException("The string constant of " + length + " bytes is too long to compile.");
+            }
+            return constant("Utf8:" + value, 1, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        private int classConstant(String name) {
+            int index = utf8(name);
+            return constant("Class:" + name, 1, out -> {
+                out.writeByte(7);
+                out.writeShort(index);
+            });
+        }
+
+        private int stringConstant(String value) {
+            int index = utf8(value);
+            return constant("String:" + value, 1, out -> {
+                out.writeByte(8);
+                out.writeShort(index);
+            });
+        }
+
+        private int intConstant(int value) {
+            return constant("Integer:" + value, 1, out -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        private int doubleConstant(double value) {
+            return constant("Double:" + Double.doubleToRawLongBits(value), 2, out -> {
+                out.writeByte(6);
+                out.writeDouble(value);
+            });
+        }
+
+        private int member(int tag, String owner, String name, String descriptor) {
+            int ownerIndex = classConstant(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = constant("NameAndType:" + name + ":" + descriptor, 1, out -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return constant(tag + ":" + owner + "." + name + ":" + descriptor, 1, out -> {
+                out.writeByte(tag);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int constant(String key, int slots, Entry entry) {
+            Integer index = constants.get(key);
+            if (index == null) {
+                index = constantCount;
+                write(() -> entry.write(new DataOutputStream(pool)));
+                constantCount += slots;
+                if (constantCount > 0xFFFF) {
+                    throw new RuntimeException("The constant pool of the class is too large.");
+                }
+                constants.put(key, index);
+            }
+            return index;
+        }
+
+        private static int argumentSize(String descriptor) {
+            int size = 0;
+            for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+                char c = descriptor.charAt(i);
+                while (c == '[') {
+                    c = descriptor.charAt(++i);
+                }
+                if (c == 'L') {
+                    i = descriptor.indexOf(';', i);
+                }
+                size += c == 'D' || c == 'J' ? 2 : 1;
+            }
+            return size;
+        }
+
+        private static void write(Writer writer) {
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private interface Writer {
+
+            void write() throws IOException;
+
+        }
+
+        private interface Entry {
+
+            void write(DataOutputStream out) throws IOException;
+
+        }
+
+    }
+
+    /**
+     * The bytecode of a method being written, tracking the stack depth and the
+     * number of locals so their maximums can be recorded.
+     */
+    private final class Code {
+
+        private byte[] bytes = new byte[64];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals = 1;
+
+        private void op(int opcode, int delta) {
+            put(opcode);
+            adjust(delta);
+        }
+
+        private void push(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(BIPUSH, 1);
+                put(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(SIPUSH, 1);
+                putShort(value);
+            } else {
+                int index = classFile.intConstant(value);
+                constant(index <= 255 ? LDC : LDC_W, index, 1);
+            }
+        }
+
+        private void constant(int opcode, int index, int delta) {
+            op(opcode, delta);
+            if (opcode == LDC) {
+                put(index);
+            } else {
+                putShort(index);
+            }
+        }
+
+        private void load(String descriptor, int index) {
+            local(descriptor, descriptor.equals("D") ? DLOAD : descriptor.length() == 1 ? ILOAD : ALOAD, index);
+            adjust(size(descriptor));
+        }
+
+        private void store(String descriptor, int index) {
+            local(descriptor, descriptor.equals("D") ? DSTORE : descriptor.length() == 1 ? ISTORE : ASTORE, index);
+            adjust(-size(descriptor));
+        }
+
+        private void local(String descriptor, int opcode, int index) {
+            if (index > 255) {
+                put(WIDE);
+                put(opcode);
+                putShort(index);
+            } else {
+                put(opcode);
+                put(index);
+            }
+            local(index + size(descriptor));
+        }
+
+        private void local(int count) {
+            maxLocals = Math.max(maxLocals, count);
+        }
+
+        private void type(int opcode, String name, int delta) {
+            op(opcode, delta);
+            putShort(classFile.classConstant(name));
+        }
+
+        private void field(int opcode, String owner, String name, String descriptor) {
+            int delta = opcode == GETSTATIC ? size(descriptor)
+                    : opcode == GETFIELD ? size(descriptor) - 1
+                    : -1 - size(descriptor);
+            op(opcode, delta);
+            putShort(classFile.member(9, owner, name, descriptor));
+        }
+
+        private void invoke(int opcode, String owner, String name, String descriptor) {
+            int arguments = ClassFile.argumentSize(descriptor);
+            int delta = size(returnDescriptor(descriptor)) - arguments - (opcode == INVOKESTATIC ? 0 : 1);
+            op(opcode, delta);
+            putShort(classFile.member(opcode == INVOKEINTERFACE ? 11 : 10, owner, name, descriptor));
+            if (opcode == INVOKEINTERFACE) {
+                put(arguments + 1);
+                put(0);
+            }
+        }
+
+        /**
+         * Emits a jump, adjusting the stack by the operands the jump consumes.
+         * After a goto the stack depth is taken from the next bound label.
+         */
+        private void jump(int opcode, Label label, int delta) {
+            int position = length;
+            op(opcode, delta);
+            putShort(0);
+            label.depth = stack;
+            if (label.position >= 0) {
+                patch(position, label.position);
+            } else {
+                label.jumps.add(position);
+            }
+        }
+
+        private void bind(Label label) {
+            label.position = length;
+            if (label.depth >= 0) {
+                stack = label.depth;
+            }
+            label.depth = stack;
+            for (int jump : label.jumps) {
+                patch(jump, length);
+            }
+        }
+
+        private void patch(int position, int target) {
+            int offset = target - position;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("The method is too large to compile.");
+            }
+            bytes[position + 1] = (byte) (offset >> 8);
+            bytes[position + 2] = (byte) offset;
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void put(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void putShort(int value) {
+            put(value >> 8);
+            put(value);
+        }
+
+    }
+
+    private static final class Label {
+
+        private final List<Integer> jumps = new ArrayList<>();
+        private int position = -1;
+        private int depth = -1;
+
+    }
+
+    private static final class Loader extends ClassLoader {
+
+        private Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
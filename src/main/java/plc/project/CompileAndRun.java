@@ -0,0 +1,200 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles the Java source emitted by the {@link Generator} with the system
+ * {@link JavaCompiler}, keeping the source and class files in memory, and runs
+ * the resulting {@code Main} class. Compiled classes are kept in a {@link
+ * ProgramCache}, so running a recently run program again skips compilation.
+ */
+public final class CompileAndRun {
+
+    private static final String CLASS_NAME = "Main";
+    private static final int CACHE_CAPACITY = 256;
+
+    private final JavaCompiler compiler;
+    private final ProgramCache<Class<?>> cache = new ProgramCache<>(CACHE_CAPACITY, this::compileUncached);
+
+    public CompileAndRun() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new RuntimeException("No Java compiler is available in this runtime.");
+        }
+    }
+
+    public ProgramCache<Class<?>> getCache() {
+        return cache;
+    }
+
+    /**
+     * Generates, compiles, and runs an analyzed source, returning the result
+     * of its {@code main()} method.
+     */
+    public Object run(Ast.Source ast) {
+        return run(generate(ast));
+    }
+
+    /**
+     * Compiles and runs Java source declaring a {@code Main} class, returning
+     * the result of its {@code main()} method.
+     */
+    public Object run(String source) {
+        Class<?> type = compile(source);
+        try {
+            Method main = type.getDeclaredMethod("main");
+            main.setAccessible(true);
+            return main.invoke(type.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Unable to run " + CLASS_NAME + ".main(): " + e.getCause(), e);
+        }
+    }
+
+    public Class<?> compile(Ast.Source ast) {
+        return compile(generate(ast));
+    }
+
+    /**
+     * Returns the {@code Main} class compiled from the source, from the cache
+     * if the same source was compiled before.
+     */
+    public Class<?> compile(String source) {
+        return cache.get(source);
+    }
+
+    private Class<?> compileUncached(String source) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try (MemoryFileManager fileManager = new MemoryFileManager(standard)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Collections.singletonList("-proc:none"), null,
+                    Collections.singletonList(new SourceFile(CLASS_NAME, source)));
+            if (!task.call()) {
+                StringBuilder message = new StringBuilder("Unable to compile the generated source:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append(System.lineSeparator()).append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                }
+                throw new RuntimeException(message.toString());
+            }
+            return new MemoryClassLoader(fileManager.classes).loadClass(CLASS_NAME);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated source does not declare " + CLASS_NAME + ".", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+    /**
+     * A source file held in memory.
+     */
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        private SourceFile(String className, String source) {
+            super(URI.create("memory:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    /**
+     * A class file written to memory by the compiler.
+     */
+    private static final class ClassFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private ClassFile(String className) {
+            super(URI.create("memory:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+    }
+
+    /**
+     * Reads platform classes through the standard file manager and keeps every
+     * class file the compiler writes in memory.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ClassFile> classes = new HashMap<>();
+
+        private MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            ClassFile file = new ClassFile(className);
+            classes.put(className, file);
+            return file;
+        }
+
+    }
+
+    /**
+     * Defines the compiled classes of one source, including any nested
+     * classes, on demand.
+     */
+    private static final class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, ClassFile> classes;
+
+        private MemoryClassLoader(Map<String, ClassFile> classes) {
+            super(CompileAndRun.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ClassFile file = classes.get(name);
+            if (file == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes = file.bytes.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
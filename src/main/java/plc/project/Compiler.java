@@ -0,0 +1,457 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+
+/**
+ * Compiles an {@link Ast.Source} once into a tree of {@link Node} closures,
+ * an alternative execution engine to the {@link Interpreter}. Operators,
+ * variable slots, and calls to methods of the source are resolved while
+ * compiling, so executing the program does not dispatch on node types or
+ * operator strings.
+ *
+ * Variables are kept in {@link Frame}s using the slots assigned by the {@link
+ * Resolver}, which is run first if the source has not been resolved. Names the
+ * source does not declare are looked up in the {@link Scope} given to the
+ * compiler the first time they are used.
+ */
+public final class Compiler implements Ast.Visitor<Compiler.Node> {
+
+    private final Scope scope;
+    private final Map<String, Method> methods = new HashMap<>();
+    private boolean inMethod = false;
+
+    public Compiler(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles the source into a program which can be executed repeatedly,
+     * each execution starting with fresh fields. A compiler may compile
+     * several sources, each into its own program.
+     */
+    public Program compile(Ast.Source ast) {
+        if (ast.getFrameSize() < 0) {
+            new Resolver().visit(ast);
+        }
+        methods.clear();
+        inMethod = false;
+        return new Program(ast.getFrameSize(), visit(ast));
+    }
+
+    @Override
+    public Node visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) {
+            methods.put(method.getName() + "/" + method.getParameters().size(), new Method(method.getParameters().size()));
+        }
+        Node[] fields = new Node[ast.getFields().size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = visit(ast.getFields().get(i));
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        Method main = methods.get("main/0");
+        return frame -> {
+            for (Node field : fields) {
+                field.execute(frame);
+            }
+            if (main != null) {
+                return main.invoke(frame, new Environment.PlcObject[0]);
+            }
+            return scope.lookupFunction("main", 0).invoke(new ArrayList<>());
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Field ast) {
+        return declare(ast.getSlot(), ast.getValue());
+    }
+
+    @Override
+    public Node visit(Ast.Method ast) {
+        Method method = methods.get(ast.getName() + "/" + ast.getParameters().size());
+        inMethod = true;
+        try {
+            method.frameSize = ast.getFrameSize();
+            method.body = block(ast.getStatements());
+        } finally {
+            inMethod = false;
+        }
+        return method.body;
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Expression ast) {
+        Node expression = visit(ast.getExpression());
+        return frame -> {
+            expression.execute(frame);
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Declaration ast) {
+        return declare(ast.getSlot(), ast.getValue());
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            throw new RuntimeException("Expected a receiver of type Ast.Expr.Access.");
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        Node value = visit(ast.getValue());
+        if (access.getReceiver().isPresent()) {
+            Node receiver = visit(access.getReceiver().get());
+            String name = access.getName();
+            return frame -> {
+                receiver.execute(frame).setField(name, value.execute(frame));
+                return null;
+            };
+        } else if (access.getSlot() >= 0) {
+            int depth = access.getDepth();
+            int slot = access.getSlot();
+            return frame -> {
+                frame.set(depth, slot, value.execute(frame));
+                return null;
+            };
+        } else {
+            HostVariable variable = new HostVariable(access.getName());
+            return frame -> {
+                variable.lookup().setValue(value.execute(frame));
+                return null;
+            };
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.If ast) {
+        Node condition = visit(ast.getCondition());
+        Node thenStatements = block(ast.getThenStatements());
+        Node elseStatements = block(ast.getElseStatements());
+        return frame -> {
+            if (Interpreter.requireType(Boolean.class, condition.execute(frame))) {
+                return thenStatements.execute(frame);
+            } else {
+                return elseStatements.execute(frame);
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Node visit(Ast.Stmt.For ast) {
+        Node value = visit(ast.getValue());
+        int slot = ast.getSlot();
+        Node statements = block(ast.getStatements());
+        return frame -> {
+            Iterable<Environment.PlcObject> iterable = Interpreter.requireType(Iterable.class, value.execute(frame));
+            for (Environment.PlcObject obj : iterable) {
+                frame.set(0, slot, obj);
+                Environment.PlcObject result = statements.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.While ast) {
+        Node condition = visit(ast.getCondition());
+        Node statements = block(ast.getStatements());
+        return frame -> {
+            while (Interpreter.requireType(Boolean.class, condition.execute(frame))) {
+                Environment.PlcObject result = statements.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Return ast) {
+        return visit(ast.getValue());
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Literal ast) {
+        Environment.PlcObject value = ast.getObject();
+        return frame -> value;
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Binary ast) {
+        Ast.Expr.Binary.Operator operator = ast.getOperatorKind();
+        if (operator == null) {
+            throw new RuntimeException("Error, invalid binary expression.");
+        }
+        Node left = visit(ast.getLeft());
+        Node right = visit(ast.getRight());
+        switch (operator) {
+            case OR:
+                return frame -> Environment.create(Interpreter.requireType(Boolean.class, left.execute(frame))
+                        || Interpreter.requireType(Boolean.class, right.execute(frame)));
+            case AND:
+                return frame -> Environment.create(Interpreter.requireType(Boolean.class, left.execute(frame))
+                        && Interpreter.requireType(Boolean.class, right.execute(frame)));
+            default:
+                BinaryOperator<Environment.PlcObject> operation = operation(operator);
+                return frame -> operation.apply(left.execute(frame), right.execute(frame));
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            Node receiver = visit(ast.getReceiver().get());
+            String name = ast.getName();
+            return frame -> receiver.execute(frame).getField(name).getValue();
+        } else if (ast.getSlot() >= 0) {
+            int depth = ast.getDepth();
+            int slot = ast.getSlot();
+            return frame -> frame.get(depth, slot);
+        } else {
+            HostVariable variable = new HostVariable(ast.getName());
+            return frame -> variable.lookup().getValue();
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Function ast) {
+        Node[] arguments = new Node[ast.getArguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = visit(ast.getArguments().get(i));
+        }
+        if (ast.getReceiver().isPresent()) {
+            Node receiver = visit(ast.getReceiver().get());
+            MethodCache cache = ast.getCache();
+            return frame -> {
+                Environment.PlcObject[] args = evaluate(arguments, 1, frame);
+                args[0] = receiver.execute(frame);
+                return cache.invoke(args);
+            };
+        }
+        // Like the interpreter, methods are only defined once the fields have
+        // been initialized, so calls from fields go to the host.
+        Method method = methods.get(ast.getName() + "/" + arguments.length);
+        if (method != null && inMethod) {
+            return frame -> method.invoke(frame.getParent(), evaluate(arguments, frame));
+        }
+        HostFunction function = new HostFunction(ast.getName(), arguments.length);
+        return frame -> function.lookup().invoke(Arrays.asList(evaluate(arguments, frame)));
+    }
+
+    /**
+     * Compiles a field or declaration, which always writes its slot so that a
+     * declaration in a loop starts each iteration uninitialized.
+     */
+    private Node declare(int slot, Optional<Ast.Expr> value) {
+        if (value.isPresent()) {
+            Node initializer = visit(value.get());
+            return frame -> {
+                frame.set(0, slot, initializer.execute(frame));
+                return null;
+            };
+        }
+        return frame -> {
+            frame.set(0, slot, Environment.NIL);
+            return null;
+        };
+    }
+
+    /**
+     * Compiles a list of statements, stopping at the first one which returns
+     * a value.
+     */
+    private Node block(List<Ast.Stmt> statements) {
+        Node[] nodes = new Node[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = visit(statements.get(i));
+        }
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        return frame -> {
+            for (Node node : nodes) {
+                Environment.PlcObject result = node.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    private static Environment.PlcObject[] evaluate(Node[] arguments, Frame frame) {
+        return evaluate(arguments, 0, frame);
+    }
+
+    /**
+     * Evaluates the arguments into an array, leaving the first {@code offset}
+     * elements for the caller to fill in.
+     */
+    private static Environment.PlcObject[] evaluate(Node[] arguments, int offset, Frame frame) {
+        Environment.PlcObject[] values = new Environment.PlcObject[arguments.length + offset];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i + offset] = arguments[i].execute(frame);
+        }
+        return values;
+    }
+
+    static BinaryOperator<Environment.PlcObject> operation(Ast.Expr.Binary.Operator operator) {
+        switch (operator) {
+            case ADD:
+                return Interpreter::add;
+            case SUBTRACT:
+                return Interpreter::subtract;
+            case MULTIPLY:
+                return Interpreter::multiply;
+            case DIVIDE:
+                return Interpreter::divide;
+            case EQUAL:
+                return (left, right) -> Environment.create(Interpreter.equal(left, right));
+            case NOT_EQUAL:
+                return (left, right) -> Environment.create(!Interpreter.equal(left, right));
+            case LESS:
+                return (left, right) -> Environment.create(Interpreter.compare(left, right) < 0);
+            case LESS_EQUAL:
+                return (left, right) -> Environment.create(Interpreter.compare(left, right) <= 0);
+            case GREATER:
+                return (left, right) -> Environment.create(Interpreter.compare(left, right) > 0);
+            case GREATER_EQUAL:
+                return (left, right) -> Environment.create(Interpreter.compare(left, right) >= 0);
+            default:
+                throw new RuntimeException("Error, invalid binary expression.");
+        }
+    }
+
+    /**
+     * A compiled expression or statement. Expressions return their value;
+     * statements return null to continue or the value of a return statement.
+     */
+    @FunctionalInterface
+    public interface Node {
+
+        Environment.PlcObject execute(Frame frame);
+
+    }
+
+    /**
+     * A compiled source, executed by running its field initializers and then
+     * its main method in a new frame.
+     *
+     * Programs are immutable and can be executed by many threads at once,
+     * since each execution has its own frames; only variables of the host
+     * scope are shared between executions.
+     */
+    public static final class Program {
+
+        private final int frameSize;
+        private final Node node;
+
+        private Program(int frameSize, Node node) {
+            this.frameSize = frameSize;
+            this.node = node;
+        }
+
+        public Environment.PlcObject execute() {
+            return node.execute(new Frame(null, frameSize));
+        }
+
+    }
+
+    /**
+     * A method of the source, whose body is filled in after every method has
+     * been declared so calls can be bound before the callee is compiled.
+     */
+    private static final class Method {
+
+        private final int arity;
+        private int frameSize;
+        private Node body;
+
+        private Method(int arity) {
+            this.arity = arity;
+        }
+
+        private Environment.PlcObject invoke(Frame parent, Environment.PlcObject[] arguments) {
+            Frame frame = new Frame(parent, frameSize);
+            for (int i = 0; i < arity; i++) {
+                frame.set(0, i, arguments[i]);
+            }
+            Environment.PlcObject result = body.execute(frame);
+            return result != null ? result : Environment.NIL;
+        }
+
+    }
+
+    /**
+     * A variable defined by the host, looked up by name on first use. The
+     * lookup is cached in a volatile field since a program may be executed
+     * on several threads at once.
+     */
+    private final class HostVariable {
+
+        private final String name;
+        private volatile Environment.Variable variable;
+
+        private HostVariable(String name) {
+            this.name = name;
+        }
+
+        private Environment.Variable lookup() {
+            if (variable == null) {
+                variable = scope.lookupVariable(name);
+            }
+            return variable;
+        }
+
+    }
+
+    /**
+     * A function defined by the host, looked up by name and arity on first use.
+     */
+    private final class HostFunction {
+
+        private final String name;
+        private final int arity;
+        private volatile Environment.Function function;
+
+        private HostFunction(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        private Environment.Function lookup() {
+            if (function == null) {
+                function = scope.lookupFunction(name, arity);
+            }
+            return function;
+        }
+
+    }
+
+}
@@ -0,0 +1,319 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Folds constant subexpressions of an analyzed AST, returning a new AST to be
+ * given to a backend such as the {@link Interpreter} or {@link Generator}.
+ *
+ * A {@link Ast.Expr.Binary} of two literals is replaced by the literal the
+ * {@link Interpreter} evaluates it to, so Integers and Decimals keep their
+ * {@link BigInteger} and {@link BigDecimal} semantics. Expressions which fail,
+ * such as a division by zero, or whose result would not pass the {@link
+ * Analyzer} as a literal, are left to fail or overflow at runtime. Integer
+ * identities such as {@code x + 0} and {@code x * 1} are simplified, and an
+ * {@code AND} or {@code OR} with a constant operand is short-circuited. An
+ * operand which is not constant is never removed, since evaluating it may
+ * have side effects.
+ *
+ * A group whose expression folds to something other than a binary expression
+ * is replaced by that expression. Nodes without constant subexpressions are
+ * reused, and rebuilt nodes keep the variables, functions, types, and slots of
+ * the original nodes.
+ */
+public final class ConstantFolder implements Ast.Visitor<Ast> {
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        List<Ast.Field> fields = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Field field : ast.getFields()) {
+            Ast.Field folded = visit(field);
+            changed |= folded != field;
+            fields.add(folded);
+        }
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : ast.getMethods()) {
+            Ast.Method folded = visit(method);
+            changed |= folded != method;
+            methods.add(folded);
+        }
+        if (!changed) {
+            return ast;
+        }
+        Ast.Source source = new Ast.Source(fields, methods);
+        source.setFrameSize(ast.getFrameSize());
+        return source;
+    }
+
+    @Override
+    public Ast.Field visit(Ast.Field ast) {
+        Optional<Ast.Expr> value = fold(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Field field = new Ast.Field(ast.getName(), ast.getTypeName(), value);
+        field.setVariable(ast.getVariable());
+        field.setSlot(ast.getSlot());
+        return field;
+    }
+
+    @Override
+    public Ast.Method visit(Ast.Method ast) {
+        List<Ast.Stmt> statements = fold(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        method.setFunction(ast.getFunction());
+        method.setFrameSize(ast.getFrameSize());
+        return method;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Expression ast) {
+        Ast.Expr expression = fold(ast.getExpression());
+        return expression == ast.getExpression() ? ast : new Ast.Stmt.Expression(expression);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Declaration ast) {
+        Optional<Ast.Expr> value = fold(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(ast.getName(), ast.getTypeName(), value);
+        declaration.setVariable(ast.getVariable());
+        declaration.setSlot(ast.getSlot());
+        return declaration;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr receiver = fold(ast.getReceiver());
+        Ast.Expr value = fold(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return new Ast.Stmt.Assignment(receiver, value);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.If ast) {
+        Ast.Expr condition = fold(ast.getCondition());
+        List<Ast.Stmt> thenStatements = fold(ast.getThenStatements());
+        List<Ast.Stmt> elseStatements = fold(ast.getElseStatements());
+        if (condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.If(condition, thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.For ast) {
+        Ast.Expr value = fold(ast.getValue());
+        List<Ast.Stmt> statements = fold(ast.getStatements());
+        if (value == ast.getValue() && statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Stmt.For stmt = new Ast.Stmt.For(ast.getName(), value, statements);
+        stmt.setSlot(ast.getSlot());
+        return stmt;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.While ast) {
+        Ast.Expr condition = fold(ast.getCondition());
+        List<Ast.Stmt> statements = fold(ast.getStatements());
+        if (condition == ast.getCondition() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.While(condition, statements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Return ast) {
+        Ast.Expr value = fold(ast.getValue());
+        return value == ast.getValue() ? ast : new Ast.Stmt.Return(value);
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = fold(ast.getExpression());
+        if (!(expression instanceof Ast.Expr.Binary)) {
+            return expression;
+        } else if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expr.Group group = new Ast.Expr.Group(expression);
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Binary ast) {
+        Ast.Expr left = fold(ast.getLeft());
+        Ast.Expr right = fold(ast.getRight());
+        Ast.Expr.Binary.Operator operator = ast.getOperatorKind();
+        if (operator != null) {
+            Ast.Expr folded = operator == Ast.Expr.Binary.Operator.AND || operator == Ast.Expr.Binary.Operator.OR
+                    ? foldLogical(operator, left, right)
+                    : foldArithmetic(ast, operator, left, right);
+            if (folded != null) {
+                return folded;
+            }
+        }
+        if (left == ast.getLeft() && right == ast.getRight()) {
+            return ast;
+        }
+        Ast.Expr.Binary binary = new Ast.Expr.Binary(ast.getOperator(), left, right);
+        binary.setType(ast.getType());
+        return binary;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Access ast) {
+        Optional<Ast.Expr> receiver = fold(ast.getReceiver());
+        if (receiver == ast.getReceiver()) {
+            return ast;
+        }
+        Ast.Expr.Access access = new Ast.Expr.Access(receiver, ast.getName());
+        access.setVariable(ast.getVariable());
+        access.setSlot(ast.getDepth(), ast.getSlot());
+        return access;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Function ast) {
+        Optional<Ast.Expr> receiver = fold(ast.getReceiver());
+        List<Ast.Expr> arguments = new ArrayList<>();
+        boolean changed = receiver != ast.getReceiver();
+        for (Ast.Expr argument : ast.getArguments()) {
+            Ast.Expr folded = fold(argument);
+            changed |= folded != argument;
+            arguments.add(folded);
+        }
+        if (!changed) {
+            return ast;
+        }
+        Ast.Expr.Function function = new Ast.Expr.Function(receiver, ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    /**
+     * Short-circuits an {@code AND} or {@code OR} with a constant operand,
+     * returning null if neither operand is constant. An operand is only
+     * returned in place of the expression if it is a Boolean, since the
+     * interpreter checks the type of the operand it returns.
+     */
+    private static Ast.Expr foldLogical(Ast.Expr.Binary.Operator operator, Ast.Expr left, Ast.Expr right) {
+        boolean and = operator == Ast.Expr.Binary.Operator.AND;
+        if (isBoolean(left)) {
+            boolean value = (Boolean) ((Ast.Expr.Literal) left).getLiteral();
+            if (value != and) {
+                return left;
+            } else if (right.getType().equals(Environment.Type.BOOLEAN)) {
+                return right;
+            }
+        } else if (isBoolean(right) && (Boolean) ((Ast.Expr.Literal) right).getLiteral() == and
+                && left.getType().equals(Environment.Type.BOOLEAN)) {
+            return left;
+        }
+        return null;
+    }
+
+    /**
+     * Folds an operator other than {@code AND} and {@code OR}, returning null
+     * if the expression cannot be folded.
+     */
+    private static Ast.Expr foldArithmetic(Ast.Expr.Binary ast, Ast.Expr.Binary.Operator operator, Ast.Expr left, Ast.Expr right) {
+        if (left instanceof Ast.Expr.Literal && right instanceof Ast.Expr.Literal) {
+            Object value;
+            try {
+                value = Interpreter.evaluate(operator, ((Ast.Expr.Literal) left).getObject(), ((Ast.Expr.Literal) right).getObject()).getValue();
+            } catch (RuntimeException e) {
+                return null;
+            }
+            if (!isLiteral(value)) {
+                return null;
+            }
+            Ast.Expr.Literal literal = new Ast.Expr.Literal(value);
+            literal.setType(ast.getType());
+            return literal;
+        } else if (!ast.getType().equals(Environment.Type.INTEGER)) {
+            return null;
+        }
+        switch (operator) {
+            case ADD:
+                return isInteger(left, 0) ? right : isInteger(right, 0) ? left : null;
+            case SUBTRACT:
+                return isInteger(right, 0) ? left : null;
+            case MULTIPLY:
+                return isInteger(left, 1) ? right : isInteger(right, 1) ? left : null;
+            case DIVIDE:
+                return isInteger(right, 1) ? left : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns whether a folded value can be a literal, which like the {@link
+     * Analyzer} requires Integers to fit in an {@code int} and Decimals in a
+     * {@code double}.
+     */
+    private static boolean isLiteral(Object value) {
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() < 32;
+        } else if (value instanceof BigDecimal) {
+            return Double.isFinite(((BigDecimal) value).doubleValue());
+        }
+        return value instanceof Boolean || value instanceof String;
+    }
+
+    private static boolean isBoolean(Ast.Expr expr) {
+        return expr instanceof Ast.Expr.Literal && ((Ast.Expr.Literal) expr).getLiteral() instanceof Boolean;
+    }
+
+    private static boolean isInteger(Ast.Expr expr, int value) {
+        return expr instanceof Ast.Expr.Literal && BigInteger.valueOf(value).equals(((Ast.Expr.Literal) expr).getLiteral());
+    }
+
+    private Ast.Expr fold(Ast.Expr expr) {
+        return (Ast.Expr) visit(expr);
+    }
+
+    private Optional<Ast.Expr> fold(Optional<Ast.Expr> expr) {
+        if (!expr.isPresent()) {
+            return expr;
+        }
+        Ast.Expr folded = fold(expr.get());
+        return folded == expr.get() ? expr : Optional.of(folded);
+    }
+
+    /**
+     * Folds a list of statements, returning the same list if no statement
+     * changed.
+     */
+    private List<Ast.Stmt> fold(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> folded = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (Ast.Stmt stmt : statements) {
+            Ast.Stmt result = (Ast.Stmt) visit(stmt);
+            changed |= result != stmt;
+            folded.add(result);
+        }
+        return changed ? folded : statements;
+    }
+
+}
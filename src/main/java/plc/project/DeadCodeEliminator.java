@@ -0,0 +1,378 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Removes statements which can never run or whose effect is never observed
+ * from an analyzed AST, returning a new AST to be given to a backend. It is
+ * best run after the {@link ConstantFolder}, which turns constant conditions
+ * into literals.
+ *
+ * Statements following a {@code RETURN}, or an {@code IF} whose branches both
+ * return, are removed, as are {@code WHILE} loops whose condition is {@code
+ * FALSE}. An {@code IF} with a literal condition is replaced by the statements
+ * of the branch taken, unless that branch declares variables, in which case
+ * only the other branch is removed so the declarations stay in their own
+ * scope. A {@code LET} declaring a variable which is never accessed is removed
+ * if its value is pure, meaning it cannot call a function or fail, and this is
+ * repeated until no more declarations become unused. Since a variable declared
+ * without a value holds {@code NIL}, an operator which fails on {@code NIL} is
+ * only pure if every variable it reads was declared with a value.
+ *
+ * The number of AST nodes removed is counted across every AST visited, see
+ * {@link #getRemoved()}. Nodes without dead code are reused, and rebuilt nodes
+ * keep the functions and slots of the original nodes.
+ */
+public final class DeadCodeEliminator implements Ast.Visitor<Ast> {
+
+    private int removed = 0;
+    private Set<Environment.Variable> used = Collections.emptySet();
+    private Set<Environment.Variable> fields = Collections.emptySet();
+    private Set<Environment.Variable> initialized = Collections.emptySet();
+
+    /**
+     * Returns the number of AST nodes removed, counting every statement and
+     * expression within a removed statement.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        fields = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Ast.Field field : ast.getFields()) {
+            if (field.getValue().isPresent()) {
+                fields.add(field.getVariable());
+            }
+        }
+        List<Ast.Method> methods = new ArrayList<>();
+        boolean changed = false;
+        try {
+            for (Ast.Method method : ast.getMethods()) {
+                Ast.Method pruned = visit(method);
+                changed |= pruned != method;
+                methods.add(pruned);
+            }
+        } finally {
+            fields = Collections.emptySet();
+        }
+        if (!changed) {
+            return ast;
+        }
+        Ast.Source source = new Ast.Source(ast.getFields(), methods);
+        source.setFrameSize(ast.getFrameSize());
+        return source;
+    }
+
+    @Override
+    public Ast.Field visit(Ast.Field ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Method visit(Ast.Method ast) {
+        List<Ast.Stmt> statements = ast.getStatements();
+        while (true) {
+            used = Collections.newSetFromMap(new IdentityHashMap<>());
+            initialized = Collections.newSetFromMap(new IdentityHashMap<>());
+            initialized.addAll(fields);
+            for (Ast.Stmt stmt : statements) {
+                collect(stmt);
+            }
+            int before = removed;
+            statements = prune(statements);
+            if (removed == before) {
+                break;
+            }
+        }
+        used = Collections.emptySet();
+        initialized = Collections.emptySet();
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        method.setFunction(ast.getFunction());
+        method.setFrameSize(ast.getFrameSize());
+        return method;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Expression ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Declaration ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Assignment ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.If ast) {
+        List<Ast.Stmt> thenStatements = prune(ast.getThenStatements());
+        List<Ast.Stmt> elseStatements = prune(ast.getElseStatements());
+        if (thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.If(ast.getCondition(), thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.For ast) {
+        List<Ast.Stmt> statements = prune(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Stmt.For stmt = new Ast.Stmt.For(ast.getName(), ast.getValue(), statements);
+        stmt.setSlot(ast.getSlot());
+        return stmt;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.While ast) {
+        List<Ast.Stmt> statements = prune(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.While(ast.getCondition(), statements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Return ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Group ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Binary ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Access ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Function ast) {
+        return ast;
+    }
+
+    /**
+     * Prunes a list of statements, returning the same list if nothing was
+     * removed.
+     */
+    private List<Ast.Stmt> prune(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> pruned = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (int i = 0; i < statements.size(); i++) {
+            Ast.Stmt stmt = statements.get(i);
+            if (!pruned.isEmpty() && returns(pruned.get(pruned.size() - 1))) {
+                for (Ast.Stmt unreachable : statements.subList(i, statements.size())) {
+                    removed += count(unreachable);
+                }
+                changed = true;
+                break;
+            } else if (stmt instanceof Ast.Stmt.Declaration && !used.contains(((Ast.Stmt.Declaration) stmt).getVariable())
+                    && (!((Ast.Stmt.Declaration) stmt).getValue().isPresent() || isPure(((Ast.Stmt.Declaration) stmt).getValue().get()))) {
+                removed += count(stmt);
+                changed = true;
+            } else if (stmt instanceof Ast.Stmt.While && isLiteral(((Ast.Stmt.While) stmt).getCondition(), false)) {
+                removed += count(stmt);
+                changed = true;
+            } else if (stmt instanceof Ast.Stmt.If && (isLiteral(((Ast.Stmt.If) stmt).getCondition(), true) || isLiteral(((Ast.Stmt.If) stmt).getCondition(), false))) {
+                Ast.Stmt.If ast = (Ast.Stmt.If) stmt;
+                boolean condition = isLiteral(ast.getCondition(), true);
+                List<Ast.Stmt> taken = prune(condition ? ast.getThenStatements() : ast.getElseStatements());
+                List<Ast.Stmt> dropped = condition ? ast.getElseStatements() : ast.getThenStatements();
+                if (taken.stream().noneMatch(s -> s instanceof Ast.Stmt.Declaration)) {
+                    removed += 1 + count(ast.getCondition()) + count(dropped);
+                    pruned.addAll(taken);
+                    changed = true;
+                } else if (!dropped.isEmpty() || taken != (condition ? ast.getThenStatements() : ast.getElseStatements())) {
+                    removed += count(dropped);
+                    pruned.add(new Ast.Stmt.If(ast.getCondition(), condition ? taken : Collections.emptyList(), condition ? Collections.emptyList() : taken));
+                    changed = true;
+                } else {
+                    pruned.add(ast);
+                }
+            } else {
+                Ast.Stmt result = (Ast.Stmt) visit(stmt);
+                changed |= result != stmt;
+                pruned.add(result);
+            }
+        }
+        return changed ? pruned : statements;
+    }
+
+    /**
+     * Returns whether a statement always returns, so no statement after it
+     * can run.
+     */
+    private static boolean returns(Ast.Stmt stmt) {
+        if (stmt instanceof Ast.Stmt.Return) {
+            return true;
+        } else if (stmt instanceof Ast.Stmt.If) {
+            List<Ast.Stmt> thenStatements = ((Ast.Stmt.If) stmt).getThenStatements();
+            List<Ast.Stmt> elseStatements = ((Ast.Stmt.If) stmt).getElseStatements();
+            return !thenStatements.isEmpty() && returns(thenStatements.get(thenStatements.size() - 1))
+                    && !elseStatements.isEmpty() && returns(elseStatements.get(elseStatements.size() - 1));
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether evaluating an expression cannot call a function or
+     * fail. Equality never fails, but other binary operators fail on {@code
+     * NIL} and on operands of different types, such as a String compared to
+     * an Integer, so they are only pure on non-{@code NIL} operands of the
+     * same type, which must not be Any or Comparable. Division is never pure,
+     * since it fails on zero.
+     */
+    private boolean isPure(Ast.Expr expr) {
+        if (expr instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expr instanceof Ast.Expr.Access) {
+            return !((Ast.Expr.Access) expr).getReceiver().isPresent();
+        } else if (expr instanceof Ast.Expr.Group) {
+            return isPure(((Ast.Expr.Group) expr).getExpression());
+        } else if (expr instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) expr;
+            Ast.Expr.Binary.Operator operator = binary.getOperatorKind();
+            if (operator == null || operator == Ast.Expr.Binary.Operator.DIVIDE
+                    || !isPure(binary.getLeft()) || !isPure(binary.getRight())) {
+                return false;
+            } else if (operator == Ast.Expr.Binary.Operator.EQUAL || operator == Ast.Expr.Binary.Operator.NOT_EQUAL) {
+                return true;
+            }
+            Environment.Type type = binary.getLeft().getType();
+            return type.equals(binary.getRight().getType()) && !type.equals(Environment.Type.ANY)
+                    && !type.equals(Environment.Type.COMPARABLE) && !type.equals(Environment.Type.NIL)
+                    && isInitialized(binary.getLeft()) && isInitialized(binary.getRight());
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a pure expression cannot evaluate to {@code NIL}, which
+     * is only the case for an access if its variable is a field or variable
+     * declared with a value.
+     */
+    private boolean isInitialized(Ast.Expr expr) {
+        if (expr instanceof Ast.Expr.Access) {
+            return initialized.contains(((Ast.Expr.Access) expr).getVariable());
+        } else if (expr instanceof Ast.Expr.Group) {
+            return isInitialized(((Ast.Expr.Group) expr).getExpression());
+        }
+        return true;
+    }
+
+    private static boolean isLiteral(Ast.Expr expr, boolean value) {
+        return expr instanceof Ast.Expr.Literal && Boolean.valueOf(value).equals(((Ast.Expr.Literal) expr).getLiteral());
+    }
+
+    /**
+     * Adds every variable accessed within a statement or expression to
+     * {@link #used}, including the receivers of assignments, and every
+     * variable declared with a value to {@link #initialized}.
+     */
+    private void collect(Ast ast) {
+        if (ast instanceof Ast.Stmt.Expression) {
+            collect(((Ast.Stmt.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Stmt.Declaration) {
+            if (((Ast.Stmt.Declaration) ast).getValue().isPresent()) {
+                collect(((Ast.Stmt.Declaration) ast).getValue().get());
+                initialized.add(((Ast.Stmt.Declaration) ast).getVariable());
+            }
+        } else if (ast instanceof Ast.Stmt.Assignment) {
+            collect(((Ast.Stmt.Assignment) ast).getReceiver());
+            collect(((Ast.Stmt.Assignment) ast).getValue());
+        } else if (ast instanceof Ast.Stmt.If) {
+            collect(((Ast.Stmt.If) ast).getCondition());
+            ((Ast.Stmt.If) ast).getThenStatements().forEach(this::collect);
+            ((Ast.Stmt.If) ast).getElseStatements().forEach(this::collect);
+        } else if (ast instanceof Ast.Stmt.For) {
+            collect(((Ast.Stmt.For) ast).getValue());
+            ((Ast.Stmt.For) ast).getStatements().forEach(this::collect);
+        } else if (ast instanceof Ast.Stmt.While) {
+            collect(((Ast.Stmt.While) ast).getCondition());
+            ((Ast.Stmt.While) ast).getStatements().forEach(this::collect);
+        } else if (ast instanceof Ast.Stmt.Return) {
+            collect(((Ast.Stmt.Return) ast).getValue());
+        } else if (ast instanceof Ast.Expr.Group) {
+            collect(((Ast.Expr.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expr.Binary) {
+            collect(((Ast.Expr.Binary) ast).getLeft());
+            collect(((Ast.Expr.Binary) ast).getRight());
+        } else if (ast instanceof Ast.Expr.Access) {
+            ((Ast.Expr.Access) ast).getReceiver().ifPresent(this::collect);
+            used.add(((Ast.Expr.Access) ast).getVariable());
+        } else if (ast instanceof Ast.Expr.Function) {
+            ((Ast.Expr.Function) ast).getReceiver().ifPresent(this::collect);
+            ((Ast.Expr.Function) ast).getArguments().forEach(this::collect);
+        }
+    }
+
+    /**
+     * Returns the number of nodes in a statement or expression, including
+     * itself.
+     */
+    static int count(Ast ast) {
+        if (ast instanceof Ast.Stmt.Expression) {
+            return 1 + count(((Ast.Stmt.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Stmt.Declaration) {
+            return 1 + count(((Ast.Stmt.Declaration) ast).getValue());
+        } else if (ast instanceof Ast.Stmt.Assignment) {
+            return 1 + count(((Ast.Stmt.Assignment) ast).getReceiver()) + count(((Ast.Stmt.Assignment) ast).getValue());
+        } else if (ast instanceof Ast.Stmt.If) {
+            return 1 + count(((Ast.Stmt.If) ast).getCondition()) + count(((Ast.Stmt.If) ast).getThenStatements()) + count(((Ast.Stmt.If) ast).getElseStatements());
+        } else if (ast instanceof Ast.Stmt.For) {
+            return 1 + count(((Ast.Stmt.For) ast).getValue()) + count(((Ast.Stmt.For) ast).getStatements());
+        } else if (ast instanceof Ast.Stmt.While) {
+            return 1 + count(((Ast.Stmt.While) ast).getCondition()) + count(((Ast.Stmt.While) ast).getStatements());
+        } else if (ast instanceof Ast.Stmt.Return) {
+            return 1 + count(((Ast.Stmt.Return) ast).getValue());
+        } else if (ast instanceof Ast.Expr.Group) {
+            return 1 + count(((Ast.Expr.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return 1 + count(((Ast.Expr.Binary) ast).getLeft()) + count(((Ast.Expr.Binary) ast).getRight());
+        } else if (ast instanceof Ast.Expr.Access) {
+            return 1 + count(((Ast.Expr.Access) ast).getReceiver());
+        } else if (ast instanceof Ast.Expr.Function) {
+            return 1 + count(((Ast.Expr.Function) ast).getReceiver()) + count(((Ast.Expr.Function) ast).getArguments());
+        }
+        return 1;
+    }
+
+    private static int count(Optional<? extends Ast> ast) {
+        return ast.map(DeadCodeEliminator::count).orElse(0);
+    }
+
+    private static int count(List<? extends Ast> asts) {
+        int count = 0;
+        for (Ast ast : asts) {
+            count += count(ast);
+        }
+        return count;
+    }
+
+}
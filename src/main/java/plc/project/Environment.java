@@ -1,5 +1,7 @@
 package plc.project;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -19,6 +21,26 @@ public final class Environment {
 
     private static final Map<String, Type> TYPES = new HashMap<>();
 
+    /**
+     * Objects created through {@link #create} share a scope and type, since
+     * nothing is ever defined in the scope of a value.
+     */
+    private static final Scope EMPTY = new Scope(null);
+    private static final Type UNKNOWN = new Type("Unknown", "Unknown", EMPTY);
+
+    private static final PlcObject TRUE = new PlcObject(UNKNOWN, EMPTY, true);
+    private static final PlcObject FALSE = new PlcObject(UNKNOWN, EMPTY, false);
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final PlcObject[] INTEGERS = new PlcObject[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(PlcObject.INTEGER, CACHE_LOW + i);
+        }
+    }
+
     public static Type getType(String name) {
         if (!TYPES.containsKey(name)) {
             throw new RuntimeException("Unknown type " + name + ".");
@@ -34,7 +56,36 @@ public final class Environment {
     }
 
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            long integer = ((BigInteger) value).longValue();
+            if (integer >= CACHE_LOW && integer <= CACHE_HIGH) {
+                return INTEGERS[(int) integer - CACHE_LOW];
+            }
+        }
+        return new PlcObject(UNKNOWN, EMPTY, value);
+    }
+
+    /**
+     * Creates an Integer held as a {@code long}, whose {@link BigInteger} value
+     * is only created if {@link PlcObject#getValue()} is called. Small values
+     * are cached, so creating them does not allocate.
+     */
+    public static PlcObject create(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return INTEGERS[(int) value - CACHE_LOW];
+        }
+        return new PlcObject(PlcObject.INTEGER, value);
+    }
+
+    /**
+     * Creates a Decimal held as a {@code double}, whose {@link BigDecimal}
+     * value is only created if {@link PlcObject#getValue()} is called.
+     * Arithmetic on such values is approximate.
+     */
+    public static PlcObject create(double value) {
+        return new PlcObject(PlcObject.DECIMAL, Double.doubleToRawLongBits(value));
     }
 
     public static final class Type {
@@ -92,9 +143,15 @@ public final class Environment {
 
     public static final class PlcObject {
 
+        private static final byte OBJECT = 0;
+        private static final byte INTEGER = 1;
+        private static final byte DECIMAL = 2;
+
         private final Type type;
         private final Scope scope;
-        private final Object value;
+        private final byte kind;
+        private final long bits;
+        private Object value;
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
@@ -104,6 +161,20 @@ public final class Environment {
             this.type = type;
             this.scope = scope;
             this.value = value;
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+                this.kind = INTEGER;
+                this.bits = ((BigInteger) value).longValue();
+            } else {
+                this.kind = OBJECT;
+                this.bits = 0;
+            }
+        }
+
+        private PlcObject(byte kind, long bits) {
+            this.type = UNKNOWN;
+            this.scope = EMPTY;
+            this.kind = kind;
+            this.bits = bits;
         }
 
         public Type getType() {
@@ -120,20 +191,50 @@ public final class Environment {
 
         public PlcObject callMethod(String name, List<PlcObject> arguments) {
             Function function = type.getMethod(name, arguments.size());
-            arguments = new ArrayList<>(arguments);
-            arguments.add(0, this);
-            return function.invoke(arguments);
+            PlcObject[] values = new PlcObject[arguments.size() + 1];
+            values[0] = this;
+            for (int i = 1; i < values.length; i++) {
+                values[i] = arguments.get(i - 1);
+            }
+            return function.invoke(Arrays.asList(values));
         }
 
         public Object getValue() {
+            Object value = this.value;
+            if (value == null && kind != OBJECT) {
+                value = kind == INTEGER ? BigInteger.valueOf(bits) : BigDecimal.valueOf(Double.longBitsToDouble(bits));
+                this.value = value;
+            }
             return value;
         }
 
+        /**
+         * Returns whether this is an Integer which fits in a {@code long}.
+         */
+        boolean isInteger() {
+            return kind == INTEGER;
+        }
+
+        long getInteger() {
+            return bits;
+        }
+
+        /**
+         * Returns whether this is a Decimal held as a {@code double}.
+         */
+        boolean isDecimal() {
+            return kind == DECIMAL;
+        }
+
+        double getDecimal() {
+            return Double.longBitsToDouble(bits);
+        }
+
         @Override
         public String toString() {
             return "Object{" +
                     "type=" + type +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     ", scope=" + scope +
                     '}';
         }
@@ -0,0 +1,242 @@
+package plc.project;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many short programs concurrently, each on its own thread, using the
+ * {@link StackMachine}. Compiled sources are kept in a {@link ProgramCache},
+ * and every run is limited by a number of instructions and a time limit. The
+ * output of {@code print} is collected per run instead of being written to
+ * {@link System#out}.
+ *
+ * Runs use virtual threads when the Java runtime provides them, and otherwise
+ * a pool of platform threads.
+ */
+public final class ExecutionService implements AutoCloseable {
+
+    private static final int CACHE_CAPACITY = 1024;
+
+    private final long instructions;
+    private final long nanos;
+    private final ExecutorService executor;
+    private final ProgramCache<StackMachine.Program> programs;
+    private final long start = System.nanoTime();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates a service whose programs look up undeclared names in the given
+     * scope, limiting each run to the given number of instructions and
+     * nanoseconds ({@link Long#MAX_VALUE} for no limit).
+     */
+    public ExecutionService(Scope scope, long instructions, long nanos) {
+        this(scope, instructions, nanos, newExecutor());
+    }
+
+    public ExecutionService(Scope scope, long instructions, long nanos, ExecutorService executor) {
+        this.instructions = instructions;
+        this.nanos = nanos;
+        this.executor = executor;
+        this.programs = new ProgramCache<>(CACHE_CAPACITY, source -> new StackMachine(scope).compile(new Parser(TokenBuffer.lex(source)).parseSource()));
+    }
+
+    /**
+     * Compiles a source, or returns the program compiled from the same source
+     * if it is still cached.
+     */
+    public StackMachine.Program compile(String source) {
+        return programs.get(source);
+    }
+
+    public ProgramCache<StackMachine.Program> getPrograms() {
+        return programs;
+    }
+
+    /**
+     * Compiles and runs a source. Errors compiling the source are reported in
+     * the result, like errors running it.
+     */
+    public CompletableFuture<Result> submit(String source) {
+        return CompletableFuture.supplyAsync(() -> {
+            long begin = System.nanoTime();
+            try {
+                return run(compile(source), begin);
+            } catch (RuntimeException e) {
+                return record(new Result(null, "", e, System.nanoTime() - begin));
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Result> submit(StackMachine.Program program) {
+        return CompletableFuture.supplyAsync(() -> run(program, System.nanoTime()), executor);
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(executions.sum(), failures.sum(), totalNanos.sum(), maxNanos.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Stops accepting runs. Runs already submitted are completed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private Result run(StackMachine.Program program, long begin) {
+        StringWriter output = new StringWriter();
+        try {
+            Environment.PlcObject value = program.execute(new PrintWriter(output), instructions, nanos);
+            return record(new Result(value, output.toString(), null, System.nanoTime() - begin));
+        } catch (RuntimeException e) {
+            return record(new Result(null, output.toString(), e, System.nanoTime() - begin));
+        }
+    }
+
+    private Result record(Result result) {
+        executions.increment();
+        if (result.error != null) {
+            failures.increment();
+        }
+        totalNanos.add(result.nanos);
+        maxNanos.accumulateAndGet(result.nanos, Math::max);
+        return result;
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per run, which is looked
+     * up reflectively since it is only available from Java 21.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The outcome of a run: the value returned by {@code main} or the error
+     * which ended it, the output of {@code print}, and its latency.
+     */
+    public static final class Result {
+
+        private final Environment.PlcObject value;
+        private final String output;
+        private final RuntimeException error;
+        private final long nanos;
+
+        private Result(Environment.PlcObject value, String output, RuntimeException error, long nanos) {
+            this.value = value;
+            this.output = output;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Returns the value returned by {@code main}, or null if the run failed.
+         */
+        public Environment.PlcObject getValue() {
+            return value;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * Returns the error which ended the run, or null if it succeeded.
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "value=" + value +
+                    ", output='" + output + '\'' +
+                    ", error=" + error +
+                    ", nanos=" + nanos +
+                    '}';
+        }
+
+    }
+
+    /**
+     * A snapshot of the runs completed since the service was created.
+     */
+    public static final class Metrics {
+
+        private final long executions;
+        private final long failures;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long elapsedNanos;
+
+        private Metrics(long executions, long failures, long totalNanos, long maxNanos, long elapsedNanos) {
+            this.executions = executions;
+            this.failures = failures;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the number of runs completed per second since the service
+         * was created.
+         */
+        public double getThroughput() {
+            return executions * 1e9 / Math.max(elapsedNanos, 1);
+        }
+
+        public long getAverageLatencyNanos() {
+            return executions == 0 ? 0 : totalNanos / executions;
+        }
+
+        public long getMaxLatencyNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "executions=" + executions +
+                    ", failures=" + failures +
+                    ", throughput=" + getThroughput() +
+                    ", averageLatencyNanos=" + getAverageLatencyNanos() +
+                    ", maxLatencyNanos=" + maxNanos +
+                    '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * An array of variable values indexed by the slots assigned by the {@link
+ * Resolver}. Frames are chained to the frame of the enclosing definition, so a
+ * variable is found by walking up a fixed number of frames instead of looking
+ * its name up in each {@link Scope}.
+ */
+public final class Frame {
+
+    private final Frame parent;
+    private final Environment.PlcObject[] slots;
+
+    public Frame(Frame parent, int size) {
+        this.parent = parent;
+        this.slots = new Environment.PlcObject[size];
+        Arrays.fill(slots, Environment.NIL);
+    }
+
+    public Frame getParent() {
+        return parent;
+    }
+
+    public Environment.PlcObject get(int depth, int slot) {
+        return ancestor(depth).slots[slot];
+    }
+
+    public void set(int depth, int slot, Environment.PlcObject value) {
+        ancestor(depth).slots[slot] = value;
+    }
+
+    private Frame ancestor(int depth) {
+        Frame frame = this;
+        for (int i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+        return frame;
+    }
+
+    @Override
+    public String toString() {
+        return "Frame{" +
+                "parent=" + parent +
+                ", slots=" + slots.length +
+                '}';
+    }
+
+}
@@ -0,0 +1,194 @@
+package plc.project;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the tokens and AST of a source up to date as it is edited, such as in
+ * an editor. An edit re-lexes only the tokens around the edited text, and if
+ * the changed tokens lie within a single field or method, only that field or
+ * method is reparsed. Any other edit, or one which leaves the source invalid,
+ * falls back to lexing and parsing the whole source, so the result and any
+ * errors are always the same as for a full parse.
+ *
+ * Lexing restarts at the first token of the run of adjacent tokens before the
+ * edit, since whitespace always separates tokens, and stops once a token
+ * starts where a token started before the edit, after which the remaining
+ * characters and therefore tokens are unchanged.
+ */
+public final class IncrementalParser {
+
+    private String source;
+    private List<Token> tokens;
+    private List<Integer> ends;
+    private Ast.Source ast;
+
+    public IncrementalParser(String source) throws ParseException {
+        parse(source);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the tokens of the source, which is null if the last edit left
+     * the source invalid.
+     */
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the AST of the source, which is null if the last edit left the
+     * source invalid.
+     */
+    public Ast.Source getAst() {
+        return ast;
+    }
+
+    /**
+     * Replaces {@code removed} characters at {@code offset} with {@code
+     * inserted} and returns the updated AST, throwing the same exception as a
+     * full parse if the source becomes invalid.
+     */
+    public Ast.Source edit(int offset, int removed, String inserted) throws ParseException {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("Invalid edit of " + removed + " characters at " + offset + " in a source of length " + source.length() + ".");
+        }
+        String text = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        if (ast == null) {
+            return parse(text);
+        }
+        try {
+            if (update(text, offset, removed, inserted.length())) {
+                return ast;
+            }
+        } catch (RuntimeException e) {
+            // The parser reports some errors with other exceptions than a
+            // ParseException, so the full parse below reports any error as
+            // it would otherwise.
+        }
+        return parse(text);
+    }
+
+    private Ast.Source parse(String text) {
+        source = text;
+        tokens = null;
+        ast = null;
+        List<Token> lexed = new TableLexer(text).lex();
+        List<Integer> parsedEnds = new ArrayList<>();
+        ast = new Parser(lexed).parseSource(parsedEnds);
+        tokens = lexed;
+        ends = parsedEnds;
+        return ast;
+    }
+
+    /**
+     * Updates the tokens and AST for an edit, returning false if the changed
+     * tokens are not within a single field or method.
+     */
+    private boolean update(String text, int offset, int removed, int inserted) {
+        int delta = inserted - removed;
+        int first = 0;
+        for (int i = 0; i < tokens.size() && tokens.get(i).getIndex() < offset; i++) {
+            first = i;
+        }
+        while (first > 0 && end(tokens.get(first - 1)) == tokens.get(first).getIndex()) {
+            first--;
+        }
+        int restart = first < tokens.size() ? Math.min(tokens.get(first).getIndex(), offset) : offset;
+        TableLexer lexer = new TableLexer(CharBuffer.wrap(text, restart, text.length()));
+        List<Token> lexed = new ArrayList<>();
+        int resync = first;
+        while (true) {
+            if (!lexer.hasNext()) {
+                resync = tokens.size();
+                break;
+            }
+            Token token = lexer.next();
+            int index = token.getIndex() + restart;
+            if (index >= offset + inserted) {
+                while (resync < tokens.size() && tokens.get(resync).getIndex() + delta < index) {
+                    resync++;
+                }
+                if (resync < tokens.size() && tokens.get(resync).getIndex() + delta == index) {
+                    break;
+                }
+            }
+            lexed.add(new Token(token.getType(), token.getLiteral(), index, token.getSymbol()));
+        }
+        // Trims the tokens lexed again unchanged from either end of the edit.
+        int start = first;
+        int end = resync;
+        int lexedStart = 0;
+        int lexedEnd = lexed.size();
+        while (lexedStart < lexedEnd && start < end && same(tokens.get(start), lexed.get(lexedStart), 0)) {
+            start++;
+            lexedStart++;
+        }
+        while (lexedStart < lexedEnd && start < end && same(tokens.get(end - 1), lexed.get(lexedEnd - 1), delta)) {
+            end--;
+            lexedEnd--;
+        }
+        List<Token> updated = new ArrayList<>(tokens.size() - (end - start) + (lexedEnd - lexedStart));
+        updated.addAll(tokens.subList(0, start));
+        updated.addAll(lexed.subList(lexedStart, lexedEnd));
+        for (Token token : tokens.subList(end, tokens.size())) {
+            updated.add(delta == 0 ? token : new Token(token.getType(), token.getLiteral(), token.getIndex() + delta, token.getSymbol()));
+        }
+        int tokenDelta = (lexedEnd - lexedStart) - (end - start);
+        if (start == end && lexedStart == lexedEnd) {
+            source = text;
+            tokens = updated;
+            return true;
+        }
+        int declaration = 0;
+        while (declaration < ends.size() && ends.get(declaration) < end) {
+            declaration++;
+        }
+        int declarationStart = declaration == 0 ? 0 : ends.get(declaration - 1);
+        if (declaration == ends.size() || start < declarationStart
+                || (start == end && (start == declarationStart || end == ends.get(declaration)))) {
+            return false;
+        }
+        List<Integer> parsedEnds = new ArrayList<>();
+        Ast.Source parsed = new Parser(updated.subList(declarationStart, ends.get(declaration) + tokenDelta)).parseSource(parsedEnds);
+        List<Ast.Field> fields = new ArrayList<>(ast.getFields());
+        List<Ast.Method> methods = new ArrayList<>(ast.getMethods());
+        if (declaration < fields.size()) {
+            if (parsed.getFields().size() != 1 || !parsed.getMethods().isEmpty()) {
+                return false;
+            }
+            fields.set(declaration, parsed.getFields().get(0));
+        } else {
+            if (parsed.getMethods().size() != 1 || !parsed.getFields().isEmpty()) {
+                return false;
+            }
+            methods.set(declaration - fields.size(), parsed.getMethods().get(0));
+        }
+        for (int i = declaration; i < ends.size(); i++) {
+            ends.set(i, ends.get(i) + tokenDelta);
+        }
+        source = text;
+        tokens = updated;
+        ast = new Ast.Source(fields, methods);
+        return true;
+    }
+
+    private static int end(Token token) {
+        return token.getIndex() + token.getLiteral().length();
+    }
+
+    /**
+     * Returns true if a token lexed after the edit is the same as a token from
+     * before it, whose index has moved by {@code delta}.
+     */
+    private static boolean same(Token before, Token after, int delta) {
+        return before.getType() == after.getType()
+                && before.getIndex() + delta == after.getIndex()
+                && before.getLiteral().equals(after.getLiteral());
+    }
+
+}
@@ -7,11 +7,28 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+/**
+ * Evaluates an {@link Ast} by visiting it. The current scope and frame are
+ * kept in fields, so an interpreter runs one execution at a time; concurrent
+ * executions of the same source each need their own interpreter, or can share
+ * a {@link Compiler.Program} instead. The source itself can be shared once it
+ * has been analyzed and resolved, since interpreting it does not modify it.
+ */
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
+    private Frame frame = null;
+    private boolean approximateDecimals = false;
+
+    /**
+     * The value of the RETURN statement being completed, or null while
+     * statements complete normally. Statement lists stop once it is set, and
+     * the enclosing method call takes and clears it.
+     */
+    private Environment.PlcObject returned = null;
 
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
@@ -25,8 +42,19 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return scope;
     }
 
+    /**
+     * Sets whether Decimal literals are evaluated as doubles, which avoids
+     * BigDecimal arithmetic when exact decimal results aren't needed.
+     */
+    public void setApproximateDecimals(boolean approximateDecimals) {
+        this.approximateDecimals = approximateDecimals;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
+        if (ast.getFrameSize() >= 0) {
+            frame = new Frame(null, ast.getFrameSize());
+        }
         for (Ast.Field field : ast.getFields()) {
             visit(field);
         }
@@ -39,16 +67,37 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Field ast) {
+        Environment.PlcObject value = Environment.NIL;
         if (ast.getValue().isPresent()) {
-            scope.defineVariable(ast.getName(), visit(ast.getValue().get()));
+            value = visit(ast.getValue().get());
+        }
+        if (ast.getSlot() >= 0) {
+            frame.set(0, ast.getSlot(), value);
         } else {
-            scope.defineVariable(ast.getName(), Environment.NIL);
+            scope.defineVariable(ast.getName(), value);
         }
         return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Method ast) {
+        if (ast.getFrameSize() >= 0) {
+            Frame definition = frame;
+            scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
+                Frame caller = frame;
+                frame = new Frame(definition, ast.getFrameSize());
+                for (int i = 0; i < ast.getParameters().size(); i++) {
+                    frame.set(0, i, args.get(i));
+                }
+                try {
+                    visitStatements(ast.getStatements());
+                } finally {
+                    frame = caller;
+                }
+                return takeReturned();
+            });
+            return Environment.NIL;
+        }
         scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
             scope = new Scope(scope);
             int argIndex = 0;
@@ -56,16 +105,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 scope.defineVariable(param, args.get(argIndex));
                 argIndex++;
             }
-            for (Ast.Stmt stmt : ast.getStatements()) {
-                try {
-                    visit(stmt);
-                } catch (Return r) {
-                    scope = scope.getParent();
-                    return r.value;
-                }
+            try {
+                visitStatements(ast.getStatements());
+            } finally {
+                scope = scope.getParent();
             }
-            scope = scope.getParent();
-            return Environment.NIL;
+            return takeReturned();
         });
         return Environment.NIL;
     }
@@ -78,10 +123,14 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Declaration ast) {
+        Environment.PlcObject value = Environment.NIL;
         if (ast.getValue().isPresent()) {
-            scope.defineVariable(ast.getName(), visit(ast.getValue().get()));
+            value = visit(ast.getValue().get());
+        }
+        if (ast.getSlot() >= 0) {
+            frame.set(0, ast.getSlot(), value);
         } else {
-            scope.defineVariable(ast.getName(), Environment.NIL);
+            scope.defineVariable(ast.getName(), value);
         }
         return Environment.NIL;
     }
@@ -92,6 +141,8 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
             if (access.getReceiver().isPresent()) {
                 visit(access.getReceiver().get()).setField(access.getName(), visit(ast.getValue()));
+            } else if (access.getSlot() >= 0) {
+                frame.set(access.getDepth(), access.getSlot(), visit(ast.getValue()));
             } else {
                 scope.lookupVariable(access.getName()).setValue(visit(ast.getValue()));
             }
@@ -103,76 +154,57 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.If ast) {
-        if (requireType(Boolean.class, visit(ast.getCondition())).equals(true)) {
-            try {
-                scope = new Scope(scope);
-                for (Ast.Stmt stmt : ast.getThenStatements()) {
-                    visit(stmt);
-                }
-            } finally {
-                scope = scope.getParent();
-            }
-        } else if (requireType(Boolean.class, visit(ast.getCondition())).equals(false)) {
-            try {
-                scope = new Scope(scope);
-                for (Ast.Stmt stmt : ast.getElseStatements()) {
-                    visit(stmt);
-                }
-            } finally {
-                scope = scope.getParent();
-            }
+        if (requireType(Boolean.class, visit(ast.getCondition()))) {
+            visitBlock(ast.getThenStatements());
+        } else {
+            visitBlock(ast.getElseStatements());
         }
         return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.For ast) {
-        if (requireType(Iterable.class, visit(ast.getValue())) instanceof Iterable) {
-            Iterable<Environment.PlcObject> iterable = requireType(Iterable.class, visit(ast.getValue()));
-            iterable.forEach( (obj) -> {
+        Iterable<Environment.PlcObject> iterable = requireType(Iterable.class, visit(ast.getValue()));
+        for (Environment.PlcObject obj : iterable) {
+            if (ast.getSlot() >= 0) {
+                frame.set(0, ast.getSlot(), obj);
+                visitStatements(ast.getStatements());
+            } else {
                 try {
                     scope = new Scope(scope);
                     scope.defineVariable(ast.getName(), obj);
-                    for (Ast.Stmt stmt : ast.getStatements()) {
-                        visit(stmt);
-                    }
+                    visitStatements(ast.getStatements());
                 } finally {
                     scope = scope.getParent();
                 }
-            });
+            }
+            if (returned != null) {
+                break;
+            }
         }
-
         return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.While ast) {
-        while (requireType(Boolean.class, visit(ast.getCondition()))) {
-            try {
-                scope = new Scope(scope);
-                // fancy java ==> ast.getStatements().forEach(this::visit);
-                for (Ast.Stmt stmt : ast.getStatements()) {
-                    visit(stmt);
-                }
-            } finally {
-                // return to the original scope
-                scope = scope.getParent();
-            }
+        while (returned == null && requireType(Boolean.class, visit(ast.getCondition()))) {
+            visitBlock(ast.getStatements());
         }
         return Environment.NIL;
     }
 
     @Override
-    public Environment.PlcObject visit(Ast.Stmt.Return ast) {       //TODO
-        throw new Return(visit(ast.getValue()));
+    public Environment.PlcObject visit(Ast.Stmt.Return ast) {
+        returned = visit(ast.getValue());
+        return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Literal ast) {
-        if (ast.getLiteral() == null) {
-            return Environment.NIL;
+        if (approximateDecimals && ast.getLiteral() instanceof BigDecimal) {
+            return Environment.create(((BigDecimal) ast.getLiteral()).doubleValue());
         }
-        return Environment.create(ast.getLiteral());
+        return ast.getObject();
     }
 
     @Override
@@ -182,176 +214,228 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Binary ast) {
-        String op = ast.getOperator();
-        if (op.equals("OR")) {
-            if (requireType(Boolean.class, visit(ast.getLeft()))) {
-                return Environment.create(true);
-            } else if (requireType(Boolean.class, visit(ast.getRight()))) {
-                return Environment.create(true);
-            } else {
-                return Environment.create(false);
-            }
-        } else if (op.equals("AND")) {
-            if (requireType(Boolean.class, visit(ast.getLeft()))) {
-                if (requireType(Boolean.class, visit(ast.getRight()))) {
+        Ast.Expr.Binary.Operator operator = ast.getOperatorKind();
+        if (operator == null) {
+            throw new RuntimeException("Error, invalid binary expression.");
+        }
+
+        // Each operand is visited at most once; AND/OR only visit the right
+        // operand when the left one does not decide the result.
+        switch (operator) {
+            case OR:
+                if (requireType(Boolean.class, visit(ast.getLeft()))) {
                     return Environment.create(true);
-                } else {
+                }
+                return Environment.create(requireType(Boolean.class, visit(ast.getRight())));
+            case AND:
+                if (!requireType(Boolean.class, visit(ast.getLeft()))) {
                     return Environment.create(false);
                 }
-            } else {
-                return Environment.create(false);
+                return Environment.create(requireType(Boolean.class, visit(ast.getRight())));
+            default:
+                Environment.PlcObject left = visit(ast.getLeft());
+                Environment.PlcObject right = visit(ast.getRight());
+                return evaluate(operator, left, right);
+        }
+    }
+
+    /**
+     * Applies a non short-circuiting binary operator to already evaluated
+     * operands.
+     */
+    static Environment.PlcObject evaluate(Ast.Expr.Binary.Operator operator, Environment.PlcObject left, Environment.PlcObject right) {
+        switch (operator) {
+            case ADD:
+                return add(left, right);
+            case SUBTRACT:
+                return subtract(left, right);
+            case MULTIPLY:
+                return multiply(left, right);
+            case DIVIDE:
+                return divide(left, right);
+            case EQUAL:
+                return Environment.create(equal(left, right));
+            case NOT_EQUAL:
+                return Environment.create(!equal(left, right));
+            case LESS:
+                return Environment.create(compare(left, right) < 0);
+            case LESS_EQUAL:
+                return Environment.create(compare(left, right) <= 0);
+            case GREATER:
+                return Environment.create(compare(left, right) > 0);
+            case GREATER_EQUAL:
+                return Environment.create(compare(left, right) >= 0);
+            default:
+                throw new RuntimeException("Error, invalid binary expression.");
+        }
+    }
+
+    // The arithmetic helpers first try Integers held as longs, falling back to
+    // BigInteger on overflow, and Decimals held as doubles, falling back to
+    // BigDecimal if the result is not finite.
+
+    static Environment.PlcObject add(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            long lhs = left.getInteger();
+            long rhs = right.getInteger();
+            long result = lhs + rhs;
+            if (((lhs ^ result) & (rhs ^ result)) >= 0) {
+                return Environment.create(result);
             }
-        } else if (op.equals("+")) {
-            if ((visit(ast.getLeft()).getValue() instanceof String) || (visit(ast.getRight()).getValue() instanceof String)) {
-                return Environment.create(requireType(String.class, visit(ast.getLeft())) + requireType(String.class, visit(ast.getRight())));
-            } else if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                if (visit(ast.getRight()).getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, visit(ast.getLeft())).add(requireType(BigInteger.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigInteger" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                if (visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, visit(ast.getLeft())).add(requireType(BigDecimal.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigDecimal" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else {
-                throw new RuntimeException("Error with types being added.");
+        } else if (isApproximate(left, right)) {
+            double result = decimal(left) + decimal(right);
+            if (Double.isFinite(result)) {
+                return Environment.create(result);
             }
-        } else if (op.equals("-")) {
-            if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                if (visit(ast.getRight()).getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, visit(ast.getLeft())).subtract(requireType(BigInteger.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigInteger" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                if (visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, visit(ast.getLeft())).subtract(requireType(BigDecimal.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigDecimal" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else {
-                throw new RuntimeException("Error with types being subtracted.");
+        }
+        Object lhs = left.getValue();
+        Object rhs = right.getValue();
+        if (lhs instanceof String || rhs instanceof String) {
+            return Environment.create(requireType(String.class, left) + requireType(String.class, right));
+        } else if (lhs instanceof BigInteger) {
+            return Environment.create(((BigInteger) lhs).add(requireOperand(BigInteger.class, rhs)));
+        } else if (lhs instanceof BigDecimal) {
+            return Environment.create(((BigDecimal) lhs).add(requireOperand(BigDecimal.class, rhs)));
+        } else {
+            throw new RuntimeException("Error with types being added.");
+        }
+    }
+
+    static Environment.PlcObject subtract(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            long lhs = left.getInteger();
+            long rhs = right.getInteger();
+            long result = lhs - rhs;
+            if (((lhs ^ rhs) & (lhs ^ result)) >= 0) {
+                return Environment.create(result);
             }
-        } else if (op.equals("*")) {
-            if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                if (visit(ast.getRight()).getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, visit(ast.getLeft())).multiply(requireType(BigInteger.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigInteger" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                if (visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, visit(ast.getLeft())).multiply(requireType(BigDecimal.class, visit(ast.getRight()))));
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigDecimal" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else {
-                throw new RuntimeException("Error with types being multiplied.");
+        } else if (isApproximate(left, right)) {
+            double result = decimal(left) - decimal(right);
+            if (Double.isFinite(result)) {
+                return Environment.create(result);
             }
-        } else if (op.equals("/")) {
-            if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                if (visit(ast.getRight()).getValue() instanceof BigInteger) {
-                    if (visit(ast.getRight()).getValue().equals(0)) {
-                        throw new RuntimeException("Cannot divide by 0.");
-                    } else {
-                        return Environment.create(requireType(BigInteger.class, visit(ast.getLeft())).divide(requireType(BigInteger.class, visit(ast.getRight()))));
-                    }
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigInteger" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                if (visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                    if (visit(ast.getRight()).getValue().equals(0.0)) {
-                        throw new RuntimeException("Cannot divide by 0.0.");
-                    } else {
-                        return Environment.create(requireType(BigDecimal.class, visit(ast.getLeft())).divide(requireType(BigDecimal.class, visit(ast.getRight())), RoundingMode.HALF_EVEN));
-                    }
-                } else {
-                    throw new RuntimeException("Expected right operand to be a BigDecimal" + ", received " + visit(ast.getRight()).getValue().getClass().getName() + ".");
-                }
-            } else {
-                throw new RuntimeException("Error with types being divided.");
+        }
+        Object lhs = left.getValue();
+        Object rhs = right.getValue();
+        if (lhs instanceof BigInteger) {
+            return Environment.create(((BigInteger) lhs).subtract(requireOperand(BigInteger.class, rhs)));
+        } else if (lhs instanceof BigDecimal) {
+            return Environment.create(((BigDecimal) lhs).subtract(requireOperand(BigDecimal.class, rhs)));
+        } else {
+            throw new RuntimeException("Error with types being subtracted.");
+        }
+    }
+
+    static Environment.PlcObject multiply(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            try {
+                return Environment.create(Math.multiplyExact(left.getInteger(), right.getInteger()));
+            } catch (ArithmeticException e) {
+                // Overflows fall back to BigInteger below.
             }
-        } else if (op.equals("==")) {
-            if (visit(ast.getLeft()).getValue().equals(visit(ast.getRight()).getValue())) {
-                return Environment.create(true);
-            } else {
-                return Environment.create(false);
+        } else if (isApproximate(left, right)) {
+            double result = decimal(left) * decimal(right);
+            if (Double.isFinite(result)) {
+                return Environment.create(result);
             }
-        } else if (op.equals("!=")) {
-            if (visit(ast.getLeft()).getValue().equals(visit(ast.getRight()).getValue())) {
-                return Environment.create(false);
-            } else {
-                return Environment.create(true);
+        }
+        Object lhs = left.getValue();
+        Object rhs = right.getValue();
+        if (lhs instanceof BigInteger) {
+            return Environment.create(((BigInteger) lhs).multiply(requireOperand(BigInteger.class, rhs)));
+        } else if (lhs instanceof BigDecimal) {
+            return Environment.create(((BigDecimal) lhs).multiply(requireOperand(BigDecimal.class, rhs)));
+        } else {
+            throw new RuntimeException("Error with types being multiplied.");
+        }
+    }
+
+    static Environment.PlcObject divide(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            long lhs = left.getInteger();
+            long rhs = right.getInteger();
+            if (rhs == 0) {
+                throw new RuntimeException("Cannot divide by 0.");
+            } else if (lhs != Long.MIN_VALUE || rhs != -1) {
+                return Environment.create(lhs / rhs);
             }
-        } else if (op.equals("<")) {
-            if (visit(ast.getLeft()).getValue() instanceof Comparable) {
-                if (visit(ast.getRight()).getValue() instanceof Comparable) {
-                    if (((Comparable<Object>) visit(ast.getLeft()).getValue()).compareTo(visit(ast.getRight()).getValue()) < 0) {
-                        return Environment.create(true);
-                    } else {
-                        return Environment.create(false);
-                    }
-                } else {
-                    throw new RuntimeException("right hand side is not comparable.");
-                }
-            } else {
-                throw new RuntimeException("left hand side is not comparable.");
+        } else if (isApproximate(left, right)) {
+            double divisor = decimal(right);
+            if (divisor == 0) {
+                throw new RuntimeException("Cannot divide by 0.0.");
             }
-        } else if (op.equals(">")) {
-            if (visit(ast.getLeft()).getValue() instanceof Comparable) {
-                if (visit(ast.getRight()).getValue() instanceof Comparable) {
-                    if (((Comparable<Object>) visit(ast.getLeft()).getValue()).compareTo(visit(ast.getRight()).getValue()) > 0) {
-                        return Environment.create(true);
-                    } else {
-                        return Environment.create(false);
-                    }
-                } else {
-                    throw new RuntimeException("right hand side is not comparable.");
-                }
-            } else {
-                throw new RuntimeException("left hand side is not comparable.");
+            double result = decimal(left) / divisor;
+            if (Double.isFinite(result)) {
+                return Environment.create(result);
             }
-        } else if (op.equals("<=")) {
-            if (visit(ast.getLeft()).getValue() instanceof Comparable) {
-                if (visit(ast.getRight()).getValue() instanceof Comparable) {
-                    if (((Comparable<Object>) visit(ast.getLeft()).getValue()).compareTo(visit(ast.getRight()).getValue()) <= 0) {
-                        return Environment.create(true);
-                    } else {
-                        return Environment.create(false);
-                    }
-                } else {
-                    throw new RuntimeException("right hand side is not comparable.");
-                }
-            } else {
-                throw new RuntimeException("left hand side is not comparable.");
+        }
+        Object lhs = left.getValue();
+        Object rhs = right.getValue();
+        if (lhs instanceof BigInteger) {
+            BigInteger divisor = requireOperand(BigInteger.class, rhs);
+            if (divisor.signum() == 0) {
+                throw new RuntimeException("Cannot divide by 0.");
             }
-        } else if (op.equals(">=")) {
-            if (visit(ast.getLeft()).getValue() instanceof Comparable) {
-                if (visit(ast.getRight()).getValue() instanceof Comparable) {
-                    if (((Comparable<Object>) visit(ast.getLeft()).getValue()).compareTo(visit(ast.getRight()).getValue()) >= 0) {
-                        return Environment.create(true);
-                    } else {
-                        return Environment.create(false);
-                    }
-                } else {
-                    throw new RuntimeException("right hand side is not comparable.");
-                }
-            } else {
-                throw new RuntimeException("left hand side is not comparable.");
+            return Environment.create(((BigInteger) lhs).divide(divisor));
+        } else if (lhs instanceof BigDecimal) {
+            BigDecimal divisor = requireOperand(BigDecimal.class, rhs);
+            if (divisor.signum() == 0) {
+                throw new RuntimeException("Cannot divide by 0.0.");
             }
+            return Environment.create(((BigDecimal) lhs).divide(divisor, RoundingMode.HALF_EVEN));
         } else {
-            throw new RuntimeException("Error, invalid binary expression.");
+            throw new RuntimeException("Error with types being divided.");
+        }
+    }
+
+    static boolean equal(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            return left.getInteger() == right.getInteger();
+        } else if (left.isDecimal() && right.isDecimal()) {
+            return left.getDecimal() == right.getDecimal();
         }
+        return Objects.equals(left.getValue(), right.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isInteger() && right.isInteger()) {
+            return Long.compare(left.getInteger(), right.getInteger());
+        } else if (isApproximate(left, right)) {
+            double lhs = decimal(left);
+            double rhs = decimal(right);
+            return lhs < rhs ? -1 : lhs > rhs ? 1 : 0;
+        }
+        Object lhs = left.getValue();
+        Object rhs = right.getValue();
+        if (!(lhs instanceof Comparable)) {
+            throw new RuntimeException("left hand side is not comparable.");
+        } else if (!(rhs instanceof Comparable)) {
+            throw new RuntimeException("right hand side is not comparable.");
+        }
+        return ((Comparable<Object>) lhs).compareTo(rhs);
+    }
+
+    /**
+     * Returns whether the operands are Decimals with at least one held as a
+     * double, which makes the operation approximate.
+     */
+    private static boolean isApproximate(Environment.PlcObject left, Environment.PlcObject right) {
+        return (left.isDecimal() || right.isDecimal())
+                && (left.isDecimal() || left.getValue() instanceof BigDecimal)
+                && (right.isDecimal() || right.getValue() instanceof BigDecimal);
+    }
+
+    private static double decimal(Environment.PlcObject object) {
+        return object.isDecimal() ? object.getDecimal() : ((BigDecimal) object.getValue()).doubleValue();
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Access ast) {
         if (ast.getReceiver().isPresent()) {
             return visit(ast.getReceiver().get()).getField(ast.getName()).getValue();
+        } else if (ast.getSlot() >= 0) {
+            return frame.get(ast.getDepth(), ast.getSlot());
         } else {
             return scope.lookupVariable(ast.getName()).getValue();
         }
@@ -359,22 +443,66 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            // The receiver is passed as the first argument, so the arguments
+            // are evaluated into an array with room for it.
+            Environment.PlcObject[] args = new Environment.PlcObject[ast.getArguments().size() + 1];
+            for (int i = 1; i < args.length; i++) {
+                args[i] = visit(ast.getArguments().get(i - 1));
+            }
+            args[0] = visit(ast.getReceiver().get());
+            return ast.getCache().invoke(args);
+        }
         List<Environment.PlcObject> args = new ArrayList<>();
         for (Ast.Expr expr : ast.getArguments()) {
             args.add(visit(expr));
         }
+        return scope.lookupFunction(ast.getName(), ast.getArguments().size()).invoke(args);
+    }
 
-        if (ast.getReceiver().isPresent()) {
-            return visit(ast.getReceiver().get()).callMethod(ast.getName(), args);
-        } else {
-            return scope.lookupFunction(ast.getName(), ast.getArguments().size()).invoke(args);
+    /**
+     * Visits the statements of a block. Resolved code keeps its variables in
+     * the current frame, so only unresolved code needs a new scope.
+     */
+    private void visitBlock(List<Ast.Stmt> statements) {
+        if (frame != null) {
+            visitStatements(statements);
+            return;
+        }
+        try {
+            scope = new Scope(scope);
+            visitStatements(statements);
+        } finally {
+            scope = scope.getParent();
+        }
+    }
+
+    /**
+     * Visits statements in order, stopping after one completes with a RETURN.
+     */
+    private void visitStatements(List<Ast.Stmt> statements) {
+        for (Ast.Stmt stmt : statements) {
+            visit(stmt);
+            if (returned != null) {
+                return;
+            }
         }
     }
 
+    /**
+     * Returns the value of the RETURN that completed a method body, or NIL if
+     * it completed normally, and clears it for the caller.
+     */
+    private Environment.PlcObject takeReturned() {
+        Environment.PlcObject value = returned != null ? returned : Environment.NIL;
+        returned = null;
+        return value;
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
-    private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
+    static <T> T requireType(Class<T> type, Environment.PlcObject object) {
         if (type.isInstance(object.getValue())) {
             return type.cast(object.getValue());
         } else {
@@ -383,16 +511,15 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * Helper function to ensure the right operand of an arithmetic operator has
+     * the same type as the left operand.
      */
-    private static class Return extends RuntimeException {
-
-        private final Environment.PlcObject value;
-
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+    private static <T> T requireOperand(Class<T> type, Object value) {
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        } else {
+            throw new RuntimeException("Expected right operand to be a " + type.getSimpleName() + ", received " + value.getClass().getName() + ".");
         }
-
     }
 
 }
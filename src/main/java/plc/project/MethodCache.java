@@ -0,0 +1,78 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * An inline cache of the methods called at a call site with a receiver, keyed
+ * by the type of the receiver. The first {@link #LIMIT} types seen are cached,
+ * so a monomorphic or polymorphic call site skips looking the method up
+ * through the scopes of the type. Further types are looked up on every call.
+ *
+ * The entries are replaced rather than modified, so a cache may be shared by
+ * programs executing on several threads. Like {@link Compiler} host lookups,
+ * a method is assumed not to be redefined once it has been called.
+ */
+final class MethodCache {
+
+    static final int LIMIT = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private final String name;
+    private final int arity;
+    private volatile Entry[] entries = EMPTY;
+
+    MethodCache(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    int getArity() {
+        return arity;
+    }
+
+    /**
+     * Calls the method with the receiver and arguments, where the receiver is
+     * the first element of {@code arguments}. The array is passed to the
+     * method without being copied.
+     */
+    Environment.PlcObject invoke(Environment.PlcObject[] arguments) {
+        return lookup(arguments[0].getType()).invoke(Arrays.asList(arguments));
+    }
+
+    Environment.Function lookup(Environment.Type type) {
+        Entry[] entries = this.entries;
+        for (Entry entry : entries) {
+            if (entry.type == type) {
+                return entry.function;
+            }
+        }
+        Environment.Function function = type.getMethod(name, arity);
+        if (entries.length < LIMIT) {
+            Entry[] updated = Arrays.copyOf(entries, entries.length + 1);
+            updated[entries.length] = new Entry(type, function);
+            this.entries = updated;
+        }
+        return function;
+    }
+
+    /**
+     * Returns the number of types cached, which is at most {@link #LIMIT}.
+     */
+    int size() {
+        return entries.length;
+    }
+
+    private static final class Entry {
+
+        private final Environment.Type type;
+        private final Environment.Function function;
+
+        private Entry(Environment.Type type, Environment.Function function) {
+            this.type = type;
+            this.function = function;
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package plc.project;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The parser takes the sequence of tokens emitted by the lexer and turns that
@@ -20,35 +22,146 @@ import java.util.*;
 public final class Parser {
 
     private final TokenStream tokens;
+    private List<ParseException> errors = null;
 
     public Parser(List<Token> tokens) {
-        this.tokens = new TokenStream(tokens);
+        this.tokens = new ListStream(tokens);
+    }
+
+    /**
+     * Creates a parser pulling tokens from the iterator as they are needed,
+     * such as a {@link TableLexer} reading from a {@link java.io.Reader}. Only
+     * the previous token and the current lookahead are kept in memory.
+     */
+    public Parser(Iterator<Token> tokens) {
+        this.tokens = new ListStream(tokens);
+    }
+
+    /**
+     * Creates a parser reading a {@link TokenBuffer}, which compares literals
+     * against the source in place and never creates {@link Token} objects.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new BufferStream(tokens);
     }
 
     /**
      * Parses the {@code source} rule.
      */
     public Ast.Source parseSource() throws ParseException {     //TODO
+        return parseSource(new ArrayList<>());
+    }
+
+    /**
+     * Parses the {@code source} rule, adding the index of the token following
+     * each field and method to {@code ends}, which lets the {@link
+     * IncrementalParser} reparse a single field or method.
+     */
+    Ast.Source parseSource(List<Integer> ends) throws ParseException {
         List<Ast.Method> methodList = new ArrayList<>();
         List<Ast.Field> fieldList = new ArrayList<>();
 
         while (peek("LET")) {
             Ast.Field field = parseField();
             fieldList.add(field);
+            ends.add(tokens.index);
         }
 
         while (peek("DEF")) {
             Ast.Method method = parseMethod();
             methodList.add(method);
+            ends.add(tokens.index);
         }
 
-        if (tokens.has(1)) {
-            throw new ParseException("Error, more tokens in Source after methods", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+        if (tokens.has(0)) {
+            throw new ParseException("Error, more tokens in Source after methods", tokens.index == 0 ? 0 : (tokens.index - 1) + tokens.getLiteral(-1).length());
         }
 
         return new Ast.Source(fieldList, methodList);
     }
 
+    /**
+     * Parses the {@code source} rule, adding each error to {@code errors}
+     * instead of throwing the first one. After an error in a statement, tokens
+     * are skipped past the next {@code ;} or the {@code END} of a block opened
+     * by the statement, or up to the {@code END} or {@code ELSE} closing the
+     * enclosing block, and after an error outside of a statement, or once a
+     * {@code DEF} is reached, up to the next declaration, which is only a
+     * {@code DEF} once any method has been reached. The first error is the
+     * one thrown by {@link #parseSource()}, and the returned AST contains
+     * every field, method, and statement which parsed.
+     */
+    public Ast.Source parseSourceRecovering(List<ParseException> errors) {
+        List<Ast.Method> methodList = new ArrayList<>();
+        List<Ast.Field> fieldList = new ArrayList<>();
+        // Fields may only precede the methods, so once a DEF is reached a LET
+        // is no longer a declaration to recover at, even if the method fails.
+        boolean inMethods = false;
+        this.errors = errors;
+        try {
+            while (tokens.has(0)) {
+                int start = tokens.index;
+                try {
+                    if (peek("LET") && !inMethods) {
+                        fieldList.add(parseField());
+                    } else if (peek("DEF")) {
+                        inMethods = true;
+                        methodList.add(parseMethod());
+                    } else {
+                        throw new ParseException("Error, more tokens in Source after methods", tokens.index == 0 ? 0 : (tokens.index - 1) + tokens.getLiteral(-1).length());
+                    }
+                } catch (ParseException e) {
+                    record(e);
+                    if (tokens.index == start) {
+                        tokens.advance();
+                    }
+                    while (tokens.has(0) && !peek("DEF") && !(peek("LET") && !inMethods)) {
+                        tokens.advance();
+                    }
+                }
+            }
+        } finally {
+            this.errors = null;
+        }
+        return new Ast.Source(fieldList, methodList);
+    }
+
+    /**
+     * Parses the {@code source} rule like {@link #parseSource()}, but parses
+     * the methods concurrently on the pool. The tokens are first split before
+     * each {@code DEF}, since methods do not nest, and each part is parsed by
+     * its own parser. If any part is not exactly one method, the tokens are
+     * parsed sequentially instead, so the result and any errors are always
+     * the same as for a sequential parse.
+     */
+    public static Ast.Source parseSource(List<Token> tokens, ForkJoinPool pool) throws ParseException {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getType() == Token.Type.IDENTIFIER && matches(token, "DEF")) {
+                starts.add(i);
+            }
+        }
+        if (starts.size() < 2) {
+            return new Parser(tokens).parseSource();
+        }
+        starts.add(tokens.size());
+        Ast.Method[] methods = new Ast.Method[starts.size() - 1];
+        MethodsTask task = new MethodsTask(tokens, starts, methods, 0, methods.length);
+        pool.execute(task);
+        Ast.Source fields = null;
+        try {
+            fields = new Parser(tokens.subList(0, starts.get(0))).parseSource();
+        } catch (RuntimeException e) {
+            // Reported by the sequential parse below.
+        }
+        task.join();
+        if (fields == null || !fields.getMethods().isEmpty() || Arrays.asList(methods).contains(null)) {
+            return new Parser(tokens).parseSource();
+        }
+        return new Ast.Source(fields.getFields(), Arrays.asList(methods));
+    }
+
     /**
      * Parses the {@code field} rule. This method should only be called if the
      * next tokens start a field, aka {@code LET}.
@@ -56,11 +169,11 @@ public final class Parser {
     public Ast.Field parseField() throws ParseException {   //TODO
         if (match("LET")) {
             if (match(Token.Type.IDENTIFIER)) {
-                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
 
                 if (match(":")) {
                     if (match(Token.Type.IDENTIFIER)) {
-                        Ast.Expr.Access type = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+                        Ast.Expr.Access type = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
                         Ast.Field field = new Ast.Field(id.getName(), type.getName(), Optional.empty());
 
                         if (match("=")) {
@@ -71,24 +184,24 @@ public final class Parser {
                         if (match(";")) {
                             return field;
                         } else {
-                            throw new ParseException("Expected semi-colon ';'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                            throw new ParseException("Expected semi-colon ';'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                             //TODO fix thrown index value
                         }
                     } else {
-                        throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         //TODO fix thrown index
                     }
                 } else {
-                    throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     //TODO fix thrown index value
                 }
 
             } else {
-                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 //TODO fix thrown index
             }
         } else {
-            throw new ParseException("Expected 'LET'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'LET'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             //TODO fix thrown index
         }
     }
@@ -101,7 +214,7 @@ public final class Parser {
         if (match("DEF")) {
 
             if (match(Token.Type.IDENTIFIER)) {
-                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
                 List<String> paramList = new ArrayList<>();
                 List<String> paramTypes = new ArrayList<>();
                 Optional<String> returnType = Optional.empty();
@@ -110,58 +223,58 @@ public final class Parser {
 
                     if (!peek(")")) {
                         if (match(Token.Type.IDENTIFIER)) {
-                            paramList.add(tokens.get(-1).getLiteral());
+                            paramList.add(tokens.getLiteral(-1));
                             if (match(":")) {
                                 if (match(Token.Type.IDENTIFIER)) {
-                                     paramTypes.add(tokens.get(-1).getLiteral());
+                                     paramTypes.add(tokens.getLiteral(-1));
                                 } else {
-                                    throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                                    throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                                     //TODO fix thrown index
                                 }
                             } else {
-                                throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                                throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                                 //TODO fix thrown index
                             }
                         } else {
-                            throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                            throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                             // TODO fix index thrown
                         }
 
                         while (match(",")) {
                             if (match(Token.Type.IDENTIFIER)) {
-                                paramList.add(tokens.get(-1).getLiteral());
+                                paramList.add(tokens.getLiteral(-1));
                                 if (match(":")) {
                                     if (match(Token.Type.IDENTIFIER)) {
-                                        paramTypes.add(tokens.get(-1).getLiteral());
+                                        paramTypes.add(tokens.getLiteral(-1));
                                     } else {
-                                        throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                                        throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                                         //TODO fix thrown index
                                     }
                                 } else {
-                                    throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                                    throw new ParseException("Expected colon ':'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                                     //TODO fix thrown index
                                 }
                             } else {
-                                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                                 // TODO fix index thrown
                             }
                         }
                     }
 
                     if (!match(")")) {
-                        throw new ParseException("Expected ')'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected ')'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         // TODO fix index thrown
                     }
                 } else {
-                    throw new ParseException("Expected '('", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected '('", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     // TODO fix index thrown
                 }
 
                 if (match(":")) {
                     if (match(Token.Type.IDENTIFIER)) {
-                        returnType = Optional.of(tokens.get(-1).getLiteral());
+                        returnType = Optional.of(tokens.getLiteral(-1));
                     } else {
-                        throw new ParseException("Expected IDENTIFIER", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected IDENTIFIER", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         // TODO fix index thrown
                     }
                 }
@@ -169,29 +282,78 @@ public final class Parser {
                 if (match("DO")) {
                     List<Ast.Stmt> stmtList = new ArrayList<>();
                     while (!peek("END")) {
-                        stmtList.add(parseStatement());
+                        parseStatement(stmtList);
                     }
 
                     if (match("END")) {
                         return new Ast.Method(id.getName(), paramList, paramTypes, returnType, stmtList);
                     } else {
-                        throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         // TODO fix index thrown
                     }
                 } else {
-                    throw new ParseException("Expected 'DO", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected 'DO", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     //TODO fix thrown index
                 }
             } else {
-                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 // TODO fix index thrown
             }
         } else {
-            throw new ParseException("Expected 'DEF'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'DEF'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             //TODO fix thrown index
         }
     }
 
+    /**
+     * Parses a statement into {@code statements}. While recovering from
+     * errors, an error is added to {@link #errors} and the tokens are skipped
+     * to the end of the statement or block, and the error is only rethrown to
+     * end the method once a {@code DEF} or the end of the tokens is reached.
+     */
+    private void parseStatement(List<Ast.Stmt> statements) throws ParseException {
+        if (errors == null) {
+            statements.add(parseStatement());
+            return;
+        }
+        int start = tokens.index;
+        try {
+            statements.add(parseStatement());
+        } catch (ParseException e) {
+            record(e);
+            if (tokens.index == start && tokens.has(0)) {
+                tokens.advance();
+            }
+            int depth = 0;
+            while (tokens.has(0) && !peek("DEF")) {
+                if (depth == 0 && (peek("END") || peek("ELSE"))) {
+                    return;
+                } else if (depth == 0 && match(";")) {
+                    return;
+                } else if (peek("DO")) {
+                    depth++;
+                } else if (match("END")) {
+                    if (--depth == 0) {
+                        return;
+                    }
+                    continue;
+                }
+                tokens.advance();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds an error, unless it is the last error added and has been rethrown
+     * from a nested statement.
+     */
+    private void record(ParseException error) {
+        if (errors.isEmpty() || errors.get(errors.size() - 1) != error) {
+            errors.add(error);
+        }
+    }
+
     /**
      * Parses the {@code statement} rule and delegates to the necessary method.
      * If the next tokens do not start a declaration, if, while, or return
@@ -224,7 +386,7 @@ public final class Parser {
             if (match(";")) {
                 return stmt;
             } else {
-                throw new ParseException("Expected closing semi-colon ';'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected closing semi-colon ';'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 //TODO fix index thrown
             }
 
@@ -239,14 +401,14 @@ public final class Parser {
     public Ast.Stmt.Declaration parseDeclarationStatement() throws ParseException {     //TODO
         if (match("LET")) {
             if (match(Token.Type.IDENTIFIER)) {
-                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
                 Optional<String> type = Optional.empty();
 
                 if (match(":")) {
                     if (match(Token.Type.IDENTIFIER)) {
-                        type = Optional.of(tokens.get(-1).getLiteral());
+                        type = Optional.of(tokens.getLiteral(-1));
                     } else {
-                        throw new ParseException("Expected IDENTIFIER", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected IDENTIFIER", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         //TODO fix index thrown
                     }
                 }
@@ -261,15 +423,15 @@ public final class Parser {
                 if (match(";")) {
                     return declaration;
                 } else {
-                    throw new ParseException("Expected semi-colon ';'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected semi-colon ';'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     //TODO fix thrown index value
                 }
             } else {
-                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected Identifier", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 //TODO fix thrown index
             }
         } else {
-            throw new ParseException("Expected 'LET'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'LET'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             //TODO fix thrown index
         }
     }
@@ -289,27 +451,27 @@ public final class Parser {
                     if (peek("ELSE")) {
                         break;
                     }
-                    thenStmts.add(parseStatement());
+                    parseStatement(thenStmts);
                 }
 
                 if (match("ELSE")) {
                     while (!peek("END")) {
-                        elseStmts.add(parseStatement());
+                        parseStatement(elseStmts);
                     }
                 }
 
                 if (match("END")) {
                     return new Ast.Stmt.If(expr, thenStmts, elseStmts);
                 } else {
-                    throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     // TODO fix index thrown
                 }
             } else {
-                throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 //TODO fix thrown index
             }
         } else {
-            throw new ParseException("Expected 'IF'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'IF'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             //TODO fix thrown index
         }
     }
@@ -322,35 +484,35 @@ public final class Parser {
     public Ast.Stmt.For parseForStatement() throws ParseException {     //TODO
         if (match("FOR")) {
             if (match(Token.Type.IDENTIFIER)) {
-                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+                Ast.Expr.Access id = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
                 if (match("IN")) {
                     Ast.Expr expr = parseExpression();
                     if (match("DO")) {
                         List<Ast.Stmt> stmtList = new ArrayList<>();
                         while (!peek("END")) {
-                            stmtList.add(parseStatement());
+                            parseStatement(stmtList);
                         }
 
                         if (match("END")) {
                             return new Ast.Stmt.For(id.getName(), expr, stmtList);
                         } else {
-                            throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                            throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                             // TODO fix index thrown
                         }
                     } else {
-                        throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                         // TODO fix index thrown
                     }
                 } else {
-                    throw new ParseException("Expected 'IN'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected 'IN'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     // TODO fix index thrown
                 }
             } else {
-                throw new ParseException("Expected 'IDENTIFIER'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected 'IDENTIFIER'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 // TODO fix index thrown
             }
         } else {
-            throw new ParseException("Expected 'FOR'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'FOR'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             // TODO fix index thrown
         }
     }
@@ -366,21 +528,21 @@ public final class Parser {
             if (match("DO")) {
                 List<Ast.Stmt> stmtList = new ArrayList<>();
                 while (!peek("END")) {
-                    stmtList.add(parseStatement());
+                    parseStatement(stmtList);
                 }
 
                 if (match("END")) {
                     return new Ast.Stmt.While(expr, stmtList);
                 } else {
-                    throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected 'END'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                     // TODO fix index thrown
                 }
             } else {
-                throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected 'DO'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 // TODO fix index thrown
             }
         } else {
-            throw new ParseException("Expected 'WHILE'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'WHILE'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             // TODO fix index thrown
         }
     }
@@ -396,11 +558,11 @@ public final class Parser {
             if (match(";")) {
                 return new Ast.Stmt.Return(expr);
             } else {
-                throw new ParseException("Expected ';'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected ';'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 // TODO fix index thrown
             }
         } else {
-            throw new ParseException("Expected 'RETURN'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Expected 'RETURN'", (tokens.index - 1) + tokens.getLiteral(-1).length());
             // TODO fix index thrown
         }
     }
@@ -419,7 +581,7 @@ public final class Parser {
         Ast.Expr first = parseEqualityExpression();
 
         while (match("AND") || match("OR")) {
-            String op = tokens.get(-1).getLiteral();
+            String op = tokens.getLiteral(-1);
             Ast.Expr second = parseEqualityExpression();
             first = new Ast.Expr.Binary(op, first, second);
         }
@@ -434,7 +596,7 @@ public final class Parser {
         Ast.Expr first = parseAdditiveExpression();
 
         while (match("<") || match("<=") || match(">") || match(">=") || match("==") || match("!=")) {
-            String op = tokens.get(-1).getLiteral();
+            String op = tokens.getLiteral(-1);
             Ast.Expr second = parseAdditiveExpression();
             first = new Ast.Expr.Binary(op, first, second);
         }
@@ -449,7 +611,7 @@ public final class Parser {
         Ast.Expr first = parseMultiplicativeExpression();
 
         while (match("+") || match("-")) {
-            String op = tokens.get(-1).getLiteral();
+            String op = tokens.getLiteral(-1);
             Ast.Expr second = parseMultiplicativeExpression();
             first = new Ast.Expr.Binary(op, first, second);
         }
@@ -464,7 +626,7 @@ public final class Parser {
         Ast.Expr first = parseSecondaryExpression();
 
         while (match("*") || match("/")) {
-            String op = tokens.get(-1).getLiteral();
+            String op = tokens.getLiteral(-1);
             Ast.Expr second = parseSecondaryExpression();
             first = new Ast.Expr.Binary(op, first, second);
         }
@@ -517,14 +679,14 @@ public final class Parser {
         } else if (match("FALSE")) {
             return new Ast.Expr.Literal(false);
         } else if (match(Token.Type.INTEGER)) {
-            return new Ast.Expr.Literal(new BigInteger(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigInteger(tokens.getLiteral(-1)));
         } else if (match(Token.Type.DECIMAL)) {
-            return new Ast.Expr.Literal(new BigDecimal(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigDecimal(tokens.getLiteral(-1)));
         } else if (match(Token.Type.CHARACTER)) {
-            char c = tokens.get(-1).getLiteral().charAt(1);
+            char c = tokens.getLiteral(-1).charAt(1);
             return new Ast.Expr.Literal(c);
         } else if (match(Token.Type.STRING)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             name = name.substring(1, name.length() - 1);
             name = name.replaceAll("\\\\n", "\n");
             name = name.replaceAll("\\\\r", "\r");
@@ -535,11 +697,11 @@ public final class Parser {
         } else if (match("(")) {
             Ast.Expr expr = parseExpression();
             if (!match(")")) {
-                throw new ParseException("Expected closing parenthesis", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Expected closing parenthesis", (tokens.index - 1) + tokens.getLiteral(-1).length());
             }
             return new Ast.Expr.Group(expr);
         } else if (match(Token.Type.IDENTIFIER)) {
-            Ast.Expr.Access first = new Ast.Expr.Access(Optional.empty(), tokens.get(-1).getLiteral());
+            Ast.Expr.Access first = new Ast.Expr.Access(Optional.empty(), tokens.getLiteral(-1));
 
             if (match("(")) {
                 List<Ast.Expr> argList = new ArrayList<>();
@@ -555,7 +717,7 @@ public final class Parser {
                 if (match(")")) {
                     return new Ast.Expr.Function(Optional.empty(), first.getName(), argList);
                 } else {
-                    throw new ParseException("Expected ')'", (tokens.index - 1) + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expected ')'", (tokens.index - 1) + tokens.getLiteral(-1).length());
                 }
             }
 
@@ -582,11 +744,11 @@ public final class Parser {
             if (!tokens.has(i)) {
                 return false;
             } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
+                if (patterns[i] != tokens.getType(i)) {
                     return false;
                 }
             } else if (patterns[i] instanceof String) {
-                if (!patterns[i].equals(tokens.get(i).getLiteral())) {
+                if (!tokens.matches(i, (String) patterns[i])) {
                     return false;
                 }
             } else {
@@ -611,27 +773,93 @@ public final class Parser {
         return peek;
     }
 
-    private static final class TokenStream {
+    /**
+     * Returns true if the literal of a token is equal to the given literal.
+     * Keywords and operators interned by the lexer are compared by identity
+     * against the string constant.
+     */
+    private static boolean matches(Token token, String literal) {
+        if (token.getSymbol() != Symbols.NONE) {
+            return token.getLiteral() == literal;
+        }
+        return literal.equals(token.getLiteral());
+    }
+
+    /**
+     * Parses the methods between {@code from} and {@code to} into {@code
+     * methods}, splitting the range in half while it has more than {@link
+     * #THRESHOLD} tokens. A method which does not parse, or which is followed
+     * by other tokens before the next {@code DEF}, is left null.
+     */
+    private static final class MethodsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 1024;
 
         private final List<Token> tokens;
-        private int index = 0;
+        private final List<Integer> starts;
+        private final Ast.Method[] methods;
+        private final int from;
+        private final int to;
 
-        private TokenStream(List<Token> tokens) {
+        private MethodsTask(List<Token> tokens, List<Integer> starts, Ast.Method[] methods, int from, int to) {
             this.tokens = tokens;
+            this.starts = starts;
+            this.methods = methods;
+            this.from = from;
+            this.to = to;
         }
 
+        @Override
+        protected void compute() {
+            if (to - from > 1 && starts.get(to) - starts.get(from) > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MethodsTask(tokens, starts, methods, from, middle), new MethodsTask(tokens, starts, methods, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    // Copying the tokens is cheaper than reading them through
+                    // the sublist on every lookahead.
+                    Parser parser = new Parser(new ArrayList<>(tokens.subList(starts.get(i), starts.get(i + 1))));
+                    Ast.Method method = parser.parseMethod();
+                    methods[i] = parser.tokens.has(0) ? null : method;
+                } catch (RuntimeException e) {
+                    // Left null, so the tokens are parsed sequentially.
+                }
+            }
+        }
+
+    }
+
+    private static abstract class TokenStream {
+
+        protected int index = 0;
+
         /**
          * Returns true if there is a token at index + offset.
          */
-        public boolean has(int offset) {
-            return index + offset < tokens.size();
-        }
+        public abstract boolean has(int offset);
 
         /**
          * Gets the token at index + offset.
          */
-        public Token get(int offset) {
-            return tokens.get(index + offset);
+        public abstract Token get(int offset);
+
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
+        }
+
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
+        }
+
+        /**
+         * Returns true if the literal of the token at index + offset is equal to
+         * the given literal, see {@link Parser#matches(Token, String)}.
+         */
+        public boolean matches(int offset, String literal) {
+            return Parser.matches(get(offset), literal);
         }
 
         /**
@@ -643,4 +871,85 @@ public final class Parser {
 
     }
 
+    /**
+     * A stream over a list of tokens, or over an iterator of which only the
+     * previous token and the current lookahead are buffered.
+     */
+    private static final class ListStream extends TokenStream {
+
+        private final List<Token> tokens;
+        private final Iterator<Token> source;
+        private int offset = 0;
+
+        private ListStream(List<Token> tokens) {
+            this.tokens = tokens;
+            this.source = null;
+        }
+
+        private ListStream(Iterator<Token> source) {
+            this.tokens = new ArrayList<>();
+            this.source = source;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            int position = index + offset - this.offset;
+            while (source != null && position >= tokens.size() && source.hasNext()) {
+                tokens.add(source.next());
+            }
+            return position < tokens.size();
+        }
+
+        @Override
+        public Token get(int offset) {
+            has(offset);
+            return tokens.get(index + offset - this.offset);
+        }
+
+        @Override
+        public void advance() {
+            index++;
+            while (source != null && index - offset > 1 && !tokens.isEmpty()) {
+                tokens.remove(0);
+                offset++;
+            }
+        }
+
+    }
+
+    private static final class BufferStream extends TokenStream {
+
+        private final TokenBuffer buffer;
+
+        private BufferStream(TokenBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < buffer.size();
+        }
+
+        @Override
+        public Token get(int offset) {
+            return buffer.get(index + offset);
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return buffer.getType(index + offset);
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return buffer.getLiteral(index + offset);
+        }
+
+        @Override
+        public boolean matches(int offset, String literal) {
+            return buffer.matches(index + offset, literal);
+        }
+
+    }
+
 }
@@ -0,0 +1,176 @@
+package plc.project;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of programs compiled from sources, such as an analyzed
+ * {@link Ast.Source}, a {@link Compiler.Program}, or a generated class. Entries
+ * are keyed by a SHA-256 hash of the source and the least recently used entry
+ * is evicted once the cache is full.
+ *
+ * The cache can be used from several threads. A source is compiled outside
+ * of the cache's lock, and threads asking for a source which is still being
+ * compiled wait for it instead of compiling it again.
+ */
+public final class ProgramCache<T> {
+
+    private final int capacity;
+    private final Function<String, T> compiler;
+    private final Map<String, CompletableFuture<T>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProgramCache(int capacity, Function<String, T> compiler) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive, received " + capacity + ".");
+        }
+        this.capacity = capacity;
+        this.compiler = compiler;
+        this.entries = new LinkedHashMap<String, CompletableFuture<T>>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<T>> eldest) {
+                if (size() > ProgramCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the program compiled from the source, compiling it if it is not
+     * cached. Exceptions and errors compiling the source are thrown and not
+     * cached.
+     */
+    public T get(String source) {
+        String key = hash(source);
+        CompletableFuture<T> entry;
+        boolean cached;
+        synchronized (entries) {
+            entry = entries.get(key);
+            cached = entry != null;
+            if (!cached) {
+                entry = new CompletableFuture<>();
+                entries.put(key, entry);
+            }
+        }
+        if (cached) {
+            hits.increment();
+            try {
+                return entry.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        misses.increment();
+        try {
+            T program = compiler.apply(source);
+            entry.complete(program);
+            return program;
+        } catch (Throwable e) {
+            // Errors such as a StackOverflowError from deeply nested source
+            // must also complete the entry, or later calls would wait on it
+            // forever.
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Returns the hex-encoded SHA-256 hash of a source.
+     */
+    static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * A snapshot of the lookups made since the cache was created.
+     */
+    public static final class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        private Statistics(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,249 @@
+package plc.project;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each field, parameter, and local variable a slot in an array-backed
+ * {@link Frame}, and each variable access the depth and slot of the variable it
+ * refers to, so the {@link Interpreter} can index frames instead of looking
+ * names up in a chain of {@link Scope}s.
+ *
+ * A source has one frame holding its fields, and each method invocation has a
+ * frame holding its parameters followed by its local variables, whose parent
+ * is the source frame. Blocks do not create frames; variables in sibling blocks
+ * share slots instead. Names which are not declared in the source, such as
+ * variables defined by the host in a {@link Scope}, are left unresolved and
+ * are still looked up by name.
+ *
+ * The resolver can run on its own or after the {@link Analyzer}, and should be
+ * given an {@link Ast.Source} or {@link Ast.Method}.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    private Block block = null;
+    private int next = 0;
+    private int size = 0;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        enterFrame();
+        try {
+            for (Ast.Field field : ast.getFields()) {
+                visit(field);
+            }
+            ast.setFrameSize(size);
+            for (Ast.Method method : ast.getMethods()) {
+                visit(method);
+            }
+        } finally {
+            block = block.parent;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        ast.setSlot(define(ast.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        Block parent = block;
+        int parentNext = next;
+        int parentSize = size;
+        enterFrame();
+        try {
+            for (String parameter : ast.getParameters()) {
+                define(parameter);
+            }
+            for (Ast.Stmt stmt : ast.getStatements()) {
+                visit(stmt);
+            }
+            ast.setFrameSize(size);
+        } finally {
+            block = parent;
+            next = parentNext;
+            size = parentSize;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        ast.setSlot(define(ast.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        enterBlock();
+        try {
+            for (Ast.Stmt stmt : ast.getThenStatements()) {
+                visit(stmt);
+            }
+        } finally {
+            exitBlock();
+        }
+        enterBlock();
+        try {
+            for (Ast.Stmt stmt : ast.getElseStatements()) {
+                visit(stmt);
+            }
+        } finally {
+            exitBlock();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        enterBlock();
+        try {
+            ast.setSlot(define(ast.getName()));
+            for (Ast.Stmt stmt : ast.getStatements()) {
+                visit(stmt);
+            }
+        } finally {
+            exitBlock();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        enterBlock();
+        try {
+            for (Ast.Stmt stmt : ast.getStatements()) {
+                visit(stmt);
+            }
+        } finally {
+            exitBlock();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            return null;
+        }
+        int depth = 0;
+        for (Block current = block; current != null; current = current.parent) {
+            Integer slot = current.slots.get(ast.getName());
+            if (slot != null) {
+                ast.setSlot(depth, slot);
+                return null;
+            } else if (current.frame) {
+                depth++;
+            }
+        }
+        ast.setSlot(-1, -1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+        }
+        for (Ast.Expr argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    private int define(String name) {
+        if (block.slots.containsKey(name)) {
+            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+        }
+        int slot = next++;
+        size = Math.max(size, next);
+        block.slots.put(name, slot);
+        return slot;
+    }
+
+    private void enterFrame() {
+        block = new Block(block, true);
+        next = 0;
+        size = 0;
+    }
+
+    private void enterBlock() {
+        block = new Block(block, false);
+    }
+
+    /**
+     * Leaves the current block, freeing its slots for the next sibling block.
+     */
+    private void exitBlock() {
+        next -= block.slots.size();
+        block = block.parent;
+    }
+
+    /**
+     * The variables declared in a lexical block, which either starts a new frame
+     * or allocates slots in the frame of its parent.
+     */
+    private static final class Block {
+
+        private final Block parent;
+        private final boolean frame;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private Block(Block parent, boolean frame) {
+            this.parent = parent;
+            this.frame = frame;
+        }
+
+    }
+
+}
@@ -0,0 +1,644 @@
+package plc.project;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+
+/**
+ * Compiles an {@link Ast.Source} into flat code for a stack machine, an
+ * execution engine whose calls do not use the Java stack. Each call to a
+ * method of the source pushes an activation onto a heap-allocated list and
+ * jumps to the method's code, so recursion depth is limited by the heap
+ * instead of the thread stack. A {@code RETURN} of a call to a method of the
+ * source is a tail call, which replaces the current activation instead of
+ * pushing a new one.
+ *
+ * Like the {@link Compiler}, variables are kept in {@link Frame}s using the
+ * slots assigned by the {@link Resolver}, and names the source does not
+ * declare are looked up in the {@link Scope} given to the machine.
+ */
+public final class StackMachine implements Ast.Visitor<Void> {
+
+    private static final int CONSTANT = 0;
+    private static final int LOAD = 1;
+    private static final int STORE = 2;
+    private static final int HOST_LOAD = 3;
+    private static final int HOST_STORE = 4;
+    private static final int GET_FIELD = 5;
+    private static final int SET_FIELD = 6;
+    private static final int BINARY = 7;
+    private static final int BOOLEAN = 8;
+    private static final int JUMP = 9;
+    private static final int JUMP_FALSE = 10;
+    private static final int POP = 11;
+    private static final int CALL = 12;
+    private static final int TAIL_CALL = 13;
+    private static final int CALL_HOST = 14;
+    private static final int CALL_METHOD = 15;
+    private static final int ITERATOR = 16;
+    private static final int NEXT = 17;
+    private static final int RETURN = 18;
+    private static final int PRINT = 19;
+
+    /**
+     * The number of instructions between checks of the time limit and of the
+     * thread's interrupt status.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final Scope scope;
+    private final Map<String, Method> methods = new HashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+    private int[] code = new int[64];
+    private int size = 0;
+    private boolean inMethod = false;
+
+    public StackMachine(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles the source into a program which can be executed repeatedly,
+     * each execution starting with fresh fields. A machine may compile
+     * several sources, each into its own program.
+     */
+    public Program compile(Ast.Source ast) {
+        if (ast.getFrameSize() < 0) {
+            new Resolver().visit(ast);
+        }
+        methods.clear();
+        constants.clear();
+        code = new int[64];
+        size = 0;
+        inMethod = false;
+        visit(ast);
+        return new Program(ast.getFrameSize(), Arrays.copyOf(code, size), constants.toArray());
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) {
+            methods.put(method.getName() + "/" + method.getParameters().size(), new Method(method.getParameters().size()));
+        }
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        Method main = methods.get("main/0");
+        if (main != null) {
+            emit(CALL, constant(main));
+        } else {
+            emit(CALL_HOST, constant(new HostFunction("main", 0)));
+        }
+        emit(RETURN);
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        declare(ast.getSlot(), ast.getValue().orElse(null));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        Method method = methods.get(ast.getName() + "/" + ast.getParameters().size());
+        method.frameSize = ast.getFrameSize();
+        method.entry = size;
+        inMethod = true;
+        try {
+            for (Ast.Stmt stmt : ast.getStatements()) {
+                visit(stmt);
+            }
+        } finally {
+            inMethod = false;
+        }
+        emit(CONSTANT, constant(Environment.NIL));
+        emit(RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        emit(POP);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        declare(ast.getSlot(), ast.getValue().orElse(null));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            throw new RuntimeException("Expected a receiver of type Ast.Expr.Access.");
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            visit(access.getReceiver().get());
+            visit(ast.getValue());
+            emit(SET_FIELD, constant(access.getName()));
+        } else if (access.getSlot() >= 0) {
+            visit(ast.getValue());
+            emit(STORE, access.getDepth(), access.getSlot());
+        } else {
+            visit(ast.getValue());
+            emit(HOST_STORE, constant(new HostVariable(access.getName())));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        int otherwise = jump(JUMP_FALSE);
+        for (Ast.Stmt stmt : ast.getThenStatements()) {
+            visit(stmt);
+        }
+        int end = jump(JUMP);
+        patch(otherwise);
+        for (Ast.Stmt stmt : ast.getElseStatements()) {
+            visit(stmt);
+        }
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        emit(ITERATOR);
+        int start = size;
+        emit(NEXT, ast.getSlot(), -1);
+        int end = size - 1;
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        emit(JUMP, start);
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        int start = size;
+        visit(ast.getCondition());
+        int end = jump(JUMP_FALSE);
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        emit(JUMP, start);
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        Method method = bound(ast.getValue());
+        if (method != null) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast.getValue();
+            for (Ast.Expr argument : function.getArguments()) {
+                visit(argument);
+            }
+            emit(TAIL_CALL, constant(method));
+        } else {
+            visit(ast.getValue());
+            emit(RETURN);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        emit(CONSTANT, constant(ast.getObject()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        Ast.Expr.Binary.Operator operator = ast.getOperatorKind();
+        if (operator == null) {
+            throw new RuntimeException("Error, invalid binary expression.");
+        }
+        visit(ast.getLeft());
+        if (operator == Ast.Expr.Binary.Operator.OR || operator == Ast.Expr.Binary.Operator.AND) {
+            boolean or = operator == Ast.Expr.Binary.Operator.OR;
+            int right = jump(JUMP_FALSE);
+            if (or) {
+                emit(CONSTANT, constant(Environment.create(true)));
+            } else {
+                visit(ast.getRight());
+                emit(BOOLEAN);
+            }
+            int end = jump(JUMP);
+            patch(right);
+            if (or) {
+                visit(ast.getRight());
+                emit(BOOLEAN);
+            } else {
+                emit(CONSTANT, constant(Environment.create(false)));
+            }
+            patch(end);
+        } else {
+            visit(ast.getRight());
+            emit(BINARY, constant(Compiler.operation(operator)));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            emit(GET_FIELD, constant(ast.getName()));
+        } else if (ast.getSlot() >= 0) {
+            emit(LOAD, ast.getDepth(), ast.getSlot());
+        } else {
+            emit(HOST_LOAD, constant(new HostVariable(ast.getName())));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+        }
+        for (Ast.Expr argument : ast.getArguments()) {
+            visit(argument);
+        }
+        Method method = bound(ast);
+        if (ast.getReceiver().isPresent()) {
+            emit(CALL_METHOD, constant(ast.getCache()));
+        } else if (method != null) {
+            emit(CALL, constant(method));
+        } else if (ast.getName().equals("print") && ast.getArguments().size() == 1) {
+            emit(PRINT);
+        } else {
+            emit(CALL_HOST, constant(new HostFunction(ast.getName(), ast.getArguments().size())));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the method of the source an expression calls, or null if it is
+     * not such a call. Like the interpreter, methods are only defined once the
+     * fields have been initialized, so calls from fields go to the host.
+     */
+    private Method bound(Ast.Expr expr) {
+        if (!inMethod || !(expr instanceof Ast.Expr.Function)) {
+            return null;
+        }
+        Ast.Expr.Function function = (Ast.Expr.Function) expr;
+        if (function.getReceiver().isPresent()) {
+            return null;
+        }
+        return methods.get(function.getName() + "/" + function.getArguments().size());
+    }
+
+    /**
+     * Compiles a field or declaration, which always writes its slot so that a
+     * declaration in a loop starts each iteration uninitialized.
+     */
+    private void declare(int slot, Ast.Expr value) {
+        if (value != null) {
+            visit(value);
+        } else {
+            emit(CONSTANT, constant(Environment.NIL));
+        }
+        emit(STORE, 0, slot);
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void emit(int... instruction) {
+        if (size + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+        }
+        System.arraycopy(instruction, 0, code, size, instruction.length);
+        size += instruction.length;
+    }
+
+    /**
+     * Emits a jump whose target is filled in by {@link #patch(int)}, returning
+     * the position of the target.
+     */
+    private int jump(int opcode) {
+        emit(opcode, -1);
+        return size - 1;
+    }
+
+    private void patch(int target) {
+        code[target] = size;
+    }
+
+    /**
+     * A compiled source, executed by running its field initializers and then
+     * its main method.
+     *
+     * Programs are immutable and can be executed by many threads at once,
+     * since each execution has its own frames; only variables of the host
+     * scope are shared between executions.
+     */
+    public static final class Program {
+
+        private final int frameSize;
+        private final int[] code;
+        private final Object[] constants;
+
+        private Program(int frameSize, int[] code, Object[] constants) {
+            this.frameSize = frameSize;
+            this.code = code;
+            this.constants = constants;
+        }
+
+        public Environment.PlcObject execute() {
+            return execute(new PrintWriter(System.out, true), Long.MAX_VALUE, Long.MAX_VALUE);
+        }
+
+        /**
+         * Executes the program, writing the output of {@code print} to the
+         * given writer and failing once it has run more than the given number
+         * of instructions or nanoseconds, or its thread is interrupted. Use
+         * {@link Long#MAX_VALUE} for no limit.
+         */
+        @SuppressWarnings("unchecked")
+        public Environment.PlcObject execute(PrintWriter out, long instructions, long nanos) {
+            long start = System.nanoTime();
+            long count = 0;
+            List<Activation> calls = new ArrayList<>();
+            OperandStack stack = new OperandStack();
+            Frame fields = new Frame(null, frameSize);
+            Frame frame = fields;
+            int base = 0;
+            int pc = 0;
+            while (true) {
+                if (++count > instructions) {
+                    throw new RuntimeException("Exceeded the limit of " + instructions + " instructions.");
+                } else if (count % CHECK_INTERVAL == 0) {
+                    if (System.nanoTime() - start > nanos) {
+                        throw new RuntimeException("Exceeded the time limit of " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms.");
+                    } else if (Thread.currentThread().isInterrupted()) {
+                        throw new RuntimeException("The execution was interrupted.");
+                    }
+                }
+                switch (code[pc++]) {
+                    case CONSTANT:
+                        stack.push((Environment.PlcObject) constants[code[pc++]]);
+                        break;
+                    case LOAD:
+                        stack.push(frame.get(code[pc], code[pc + 1]));
+                        pc += 2;
+                        break;
+                    case STORE:
+                        frame.set(code[pc], code[pc + 1], stack.pop());
+                        pc += 2;
+                        break;
+                    case HOST_LOAD:
+                        stack.push(((HostVariable) constants[code[pc++]]).lookup().getValue());
+                        break;
+                    case HOST_STORE:
+                        ((HostVariable) constants[code[pc++]]).lookup().setValue(stack.pop());
+                        break;
+                    case GET_FIELD:
+                        stack.push(stack.pop().getField((String) constants[code[pc++]]).getValue());
+                        break;
+                    case SET_FIELD: {
+                        Environment.PlcObject value = stack.pop();
+                        stack.pop().setField((String) constants[code[pc++]], value);
+                        break;
+                    }
+                    case BINARY: {
+                        Environment.PlcObject right = stack.pop();
+                        Environment.PlcObject left = stack.pop();
+                        stack.push(((BinaryOperator<Environment.PlcObject>) constants[code[pc++]]).apply(left, right));
+                        break;
+                    }
+                    case BOOLEAN:
+                        stack.push(Environment.create(Interpreter.requireType(Boolean.class, stack.pop())));
+                        break;
+                    case JUMP:
+                        pc = code[pc];
+                        break;
+                    case JUMP_FALSE:
+                        pc = Interpreter.requireType(Boolean.class, stack.pop()) ? pc + 1 : code[pc];
+                        break;
+                    case POP:
+                        stack.pop();
+                        break;
+                    case CALL: {
+                        Method method = (Method) constants[code[pc++]];
+                        calls.add(new Activation(pc, frame, base));
+                        frame = method.frame(fields, stack);
+                        base = stack.size;
+                        pc = method.entry;
+                        break;
+                    }
+                    case TAIL_CALL: {
+                        Method method = (Method) constants[code[pc]];
+                        frame = method.frame(fields, stack);
+                        stack.size = base;
+                        pc = method.entry;
+                        break;
+                    }
+                    case CALL_HOST: {
+                        HostFunction function = (HostFunction) constants[code[pc++]];
+                        stack.push(function.lookup().invoke(Arrays.asList(stack.pop(function.arity))));
+                        break;
+                    }
+                    case CALL_METHOD: {
+                        // The receiver is below the arguments, so it is popped
+                        // with them as the first argument of the method.
+                        MethodCache cache = (MethodCache) constants[code[pc++]];
+                        stack.push(cache.invoke(stack.pop(cache.getArity() + 1)));
+                        break;
+                    }
+                    case PRINT:
+                        out.println(stack.pop().getValue());
+                        stack.push(Environment.NIL);
+                        break;
+                    case ITERATOR:
+                        stack.push(Environment.create(Interpreter.requireType(Iterable.class, stack.pop()).iterator()));
+                        break;
+                    case NEXT: {
+                        Iterator<Environment.PlcObject> iterator = (Iterator<Environment.PlcObject>) stack.peek().getValue();
+                        if (iterator.hasNext()) {
+                            frame.set(0, code[pc], iterator.next());
+                            pc += 2;
+                        } else {
+                            stack.pop();
+                            pc = code[pc + 1];
+                        }
+                        break;
+                    }
+                    case RETURN: {
+                        Environment.PlcObject value = stack.pop();
+                        if (calls.isEmpty()) {
+                            return value;
+                        }
+                        Activation caller = calls.remove(calls.size() - 1);
+                        stack.size = base;
+                        stack.push(value);
+                        frame = caller.frame;
+                        base = caller.base;
+                        pc = caller.pc;
+                        break;
+                    }
+                    default:
+                        throw new AssertionError("Invalid opcode " + code[pc - 1] + ".");
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The state of a caller saved while a method of the source runs: where to
+     * continue, its frame, and where its part of the operand stack ends.
+     */
+    private static final class Activation {
+
+        private final int pc;
+        private final Frame frame;
+        private final int base;
+
+        private Activation(int pc, Frame frame, int base) {
+            this.pc = pc;
+            this.frame = frame;
+            this.base = base;
+        }
+
+    }
+
+    private static final class OperandStack {
+
+        private Environment.PlcObject[] values = new Environment.PlcObject[16];
+        private int size = 0;
+
+        private void push(Environment.PlcObject value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private Environment.PlcObject pop() {
+            return values[--size];
+        }
+
+        /**
+         * Pops the given number of values, returning them in the order they
+         * were pushed.
+         */
+        private Environment.PlcObject[] pop(int count) {
+            size -= count;
+            return Arrays.copyOfRange(values, size, size + count);
+        }
+
+        private Environment.PlcObject peek() {
+            return values[size - 1];
+        }
+
+    }
+
+    /**
+     * A method of the source, whose entry is filled in once its code has been
+     * emitted so calls can be bound before the callee is compiled.
+     */
+    private static final class Method {
+
+        private final int arity;
+        private int frameSize;
+        private int entry;
+
+        private Method(int arity) {
+            this.arity = arity;
+        }
+
+        /**
+         * Creates a frame for a call, moving the arguments off the stack.
+         */
+        private Frame frame(Frame parent, OperandStack stack) {
+            Frame frame = new Frame(parent, frameSize);
+            for (int i = arity - 1; i >= 0; i--) {
+                frame.set(0, i, stack.pop());
+            }
+            return frame;
+        }
+
+    }
+
+    /**
+     * A variable defined by the host, looked up by name on first use. The
+     * lookup is cached in a volatile field since a program may be executed
+     * on several threads at once.
+     */
+    private final class HostVariable {
+
+        private final String name;
+        private volatile Environment.Variable variable;
+
+        private HostVariable(String name) {
+            this.name = name;
+        }
+
+        private Environment.Variable lookup() {
+            if (variable == null) {
+                variable = scope.lookupVariable(name);
+            }
+            return variable;
+        }
+
+    }
+
+    /**
+     * A function defined by the host, looked up by name and arity on first use.
+     */
+    private final class HostFunction {
+
+        private final String name;
+        private final int arity;
+        private volatile Environment.Function function;
+
+        private HostFunction(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        private Environment.Function lookup() {
+            if (function == null) {
+                function = scope.lookupFunction(name, arity);
+            }
+            return function;
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package plc.project;
+
+/**
+ * Interns identifier and operator literals during lexing, so repeated names
+ * share one {@link String} instance and no substring is allocated for a name
+ * which has been seen before.
+ *
+ * Keywords and the operators used by the {@link Parser} are seeded with
+ * dedicated ids, available through {@link Token#getSymbol()}. Their canonical
+ * instances are the interned compile-time constants, so a keyword token's
+ * literal is identical ({@code ==}) to the string constant naming it.
+ */
+final class Symbols {
+
+    /**
+     * The id of a literal without a dedicated id.
+     */
+    static final int NONE = 0;
+
+    private static final String[] RESERVED = {
+            null,
+            "LET", "DEF", "DO", "END", "IF", "ELSE", "FOR", "IN", "WHILE", "RETURN",
+            "TRUE", "FALSE", "NIL", "AND", "OR",
+            "(", ")", ",", ":", ";", "=", ".",
+            "+", "-", "*", "/", "<", "<=", ">", ">=", "==", "!="
+    };
+
+    /**
+     * Provides the characters of the literal being interned.
+     */
+    interface Source {
+
+        char get(int index);
+
+    }
+
+    private String[] literals = new String[256];
+    private int[] ids = new int[256];
+    private int size = 0;
+
+    Symbols() {
+        for (int id = 1; id < RESERVED.length; id++) {
+            insert(RESERVED[id], id);
+        }
+    }
+
+    /**
+     * Returns the canonical literal with the given id.
+     */
+    static String literal(int id) {
+        return RESERVED[id];
+    }
+
+    /**
+     * Looks up the literal from {@code start} to {@code end} in the source,
+     * adding it if it has not been seen before, and returns its slot for use
+     * with {@link #getLiteral(int)} and {@link #getId(int)}.
+     */
+    int intern(Source source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.get(i);
+        }
+        int mask = literals.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            if (literals[slot] == null) {
+                char[] chars = new char[end - start];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = source.get(start + i);
+                }
+                return insert(new String(chars), NONE);
+            } else if (equals(literals[slot], source, start, end)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical instance of the literal in the given slot.
+     */
+    String getLiteral(int slot) {
+        return literals[slot];
+    }
+
+    /**
+     * Returns the id of the literal in the given slot, or {@link #NONE}.
+     */
+    int getId(int slot) {
+        return ids[slot];
+    }
+
+    private int insert(String literal, int id) {
+        if (2 * (size + 1) > literals.length) {
+            String[] oldLiterals = literals;
+            int[] oldIds = ids;
+            literals = new String[oldLiterals.length * 2];
+            ids = new int[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldLiterals.length; i++) {
+                if (oldLiterals[i] != null) {
+                    insert(oldLiterals[i], oldIds[i]);
+                }
+            }
+        }
+        int mask = literals.length - 1;
+        int slot = mix(literal.hashCode()) & mask;
+        while (literals[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        literals[slot] = literal;
+        ids[slot] = id;
+        size++;
+        return slot;
+    }
+
+    private static boolean equals(String literal, Source source, int start, int end) {
+        if (literal.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (literal.charAt(i) != source.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
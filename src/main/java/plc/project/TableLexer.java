@@ -0,0 +1,553 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A lexer producing the same tokens as {@link Lexer}, but driven by a
+ * precomputed character class table instead of a regex per character. Each
+ * character is classified with a single array lookup, so the only allocations
+ * are the emitted tokens and their literals.
+ *
+ * The rules below mirror the regexes used by {@link Lexer} one for one, and
+ * errors are reported with the same messages and indices.
+ *
+ * Identifiers and operators are interned through {@link Symbols}, so repeated
+ * names share one instance and keywords carry their {@link Token#getSymbol()}.
+ *
+ * Tokens can either be collected eagerly with {@link #lex()} or pulled one at
+ * a time through the {@link Iterator} interface. When reading from a {@link
+ * Reader}, only the characters of the token being lexed are buffered, so a
+ * {@link Parser} pulling tokens on demand runs in constant memory.
+ *
+ * Large files can be lexed without reading them onto the heap through {@link
+ * #map(Path)}, in which case token literals are decoded from the mapping only
+ * when requested.
+ */
+public final class TableLexer implements Iterator<Token> {
+
+    private static final int WHITESPACE = 1;
+    private static final int IDENTIFIER_START = 1 << 1;
+    private static final int IDENTIFIER_PART = 1 << 2;
+    private static final int DIGIT = 1 << 3;
+    private static final int CHARACTER_ESCAPE = 1 << 4;
+    private static final int STRING_ESCAPE = 1 << 5;
+    private static final int COMPARISON = 1 << 6;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final int BUFFER_SIZE = 8192;
+
+    static {
+        mark(" \b\n\r\t", WHITESPACE);
+        for (char c = 'a'; c <= 'z'; c++) {
+            mark(String.valueOf(c), IDENTIFIER_START | IDENTIFIER_PART);
+            mark(String.valueOf(Character.toUpperCase(c)), IDENTIFIER_START | IDENTIFIER_PART);
+        }
+        mark("_", IDENTIFIER_START | IDENTIFIER_PART);
+        mark("-", IDENTIFIER_PART);
+        mark("0123456789", DIGIT | IDENTIFIER_PART);
+        mark("bnrt", CHARACTER_ESCAPE | STRING_ESCAPE);
+        mark("'\"\\", STRING_ESCAPE);
+        mark("<>!=", COMPARISON);
+    }
+
+    private final Input input;
+    private final Symbols symbols = new Symbols();
+    private int index = 0;
+    private int start = 0;
+
+    public TableLexer(CharSequence input) {
+        this.input = new SequenceInput(input);
+    }
+
+    public TableLexer(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    TableLexer(Reader reader, int bufferSize) {
+        this.input = new ReaderInput(reader, bufferSize);
+    }
+
+    TableLexer(ByteBuffer bytes, int bufferSize) {
+        this.input = new MappedInput(bytes, bufferSize);
+    }
+
+    /**
+     * Creates a lexer over a memory-mapped UTF-8 file. Token indices are
+     * character indices, as if the file had been read into a {@link String}.
+     */
+    public static TableLexer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The file " + path + " is too large to be mapped.");
+            }
+            return new TableLexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Lexes the entire input, skipping whitespace between tokens.
+     */
+    public List<Token> lex() {
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(next());
+        }
+        return tokens;
+    }
+
+    /**
+     * Skips any whitespace and returns true if another token follows.
+     */
+    @Override
+    public boolean hasNext() {
+        while (has(0) && is(get(0), WHITESPACE)) {
+            index++;
+            input.release(index);
+        }
+        start = index;
+        return has(0);
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Token.Type type = lexToken();
+        Token token;
+        if (type == Token.Type.IDENTIFIER || type == Token.Type.OPERATOR) {
+            int slot = symbols.intern(input, start, index);
+            token = new Token(type, symbols.getLiteral(slot), start, symbols.getId(slot));
+        } else {
+            token = new Token(type, input.slice(start, index), start, Symbols.NONE);
+        }
+        input.release(index);
+        return token;
+    }
+
+    /**
+     * Lexes the remaining input into the buffer without creating any {@link
+     * Token} objects.
+     */
+    void lex(TokenBuffer buffer) {
+        while (hasNext()) {
+            Token.Type type = lexToken();
+            int symbol = Symbols.NONE;
+            if (type == Token.Type.IDENTIFIER || type == Token.Type.OPERATOR) {
+                symbol = symbols.getId(symbols.intern(input, start, index));
+            }
+            buffer.add(type, start, index - start, symbol);
+            input.release(index);
+        }
+    }
+
+    /**
+     * Returns an ordered, non-splitting spliterator over the remaining tokens,
+     * for use with {@link java.util.stream.StreamSupport}.
+     */
+    public Spliterator<Token> spliterator() {
+        return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    private Token.Type lexToken() {
+        char c = get(0);
+        if (is(c, IDENTIFIER_START)) {
+            index++;
+            return lexIdentifier();
+        } else if (is(c, DIGIT)) {
+            index++;
+            return lexNumber();
+        } else if ((c == '+' || c == '-') && has(1) && is(get(1), DIGIT)) {
+            index += 2;
+            return lexNumber();
+        } else if (c == '\'') {
+            index++;
+            return lexCharacter();
+        } else if (c == '"') {
+            index++;
+            return lexString();
+        } else {
+            return lexOperator();
+        }
+    }
+
+    private Token.Type lexIdentifier() {
+        while (has(0) && is(get(0), IDENTIFIER_PART)) {
+            index++;
+        }
+        return Token.Type.IDENTIFIER;
+    }
+
+    private Token.Type lexNumber() {
+        boolean decimal = false;
+        while (has(0)) {
+            if (is(get(0), DIGIT)) {
+                index++;
+            } else if (get(0) == '.' && has(1) && is(get(1), DIGIT)) {
+                if (decimal) {
+                    break;
+                }
+                index += 2;
+                decimal = true;
+            } else {
+                break;
+            }
+        }
+        return decimal ? Token.Type.DECIMAL : Token.Type.INTEGER;
+    }
+
+    private Token.Type lexCharacter() {
+        if (has(0) && get(0) == '\'') {
+            throw new ParseException("empty character", 1);
+        } else if (has(1) && isLiteralCharacter(get(0), '\'') && get(1) == '\'') {
+            index += 2;
+            return Token.Type.CHARACTER;
+        } else if (has(2) && get(0) == '\\' && is(get(1), CHARACTER_ESCAPE) && get(2) == '\'') {
+            index += 3;
+            return Token.Type.CHARACTER;
+        } else {
+            throw new ParseException("invalid character", index);
+        }
+    }
+
+    private Token.Type lexString() {
+        while (has(0)) {
+            char c = get(0);
+            if (c == '\\' && has(1) && is(get(1), STRING_ESCAPE)) {
+                index += 2;
+            } else if (isLiteralCharacter(c, '"')) {
+                index++;
+            } else {
+                break;
+            }
+        }
+        if (has(0) && get(0) == '"') {
+            index++;
+            return Token.Type.STRING;
+        } else {
+            throw new ParseException("non-terminated string", index);
+        }
+    }
+
+    private Token.Type lexOperator() {
+        char c = get(0);
+        if (is(c, COMPARISON)) {
+            index += has(1) && get(1) == '=' ? 2 : 1;
+        } else if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+            // The regex '.' does not match these line terminators, which left
+            // the regex lexer stuck emitting empty tokens.
+            throw new ParseException("invalid character", index);
+        } else {
+            index++;
+        }
+        return Token.Type.OPERATOR;
+    }
+
+    private boolean has(int offset) {
+        return input.has(index + offset);
+    }
+
+    private char get(int offset) {
+        return input.get(index + offset);
+    }
+
+    /**
+     * Returns true if {@code c} may appear unescaped inside a literal closed by
+     * {@code quote}, which excludes the quote, backslash, and line breaks.
+     */
+    private static boolean isLiteralCharacter(char c, char quote) {
+        return c != quote && c != '\\' && c != '\n' && c != '\r';
+    }
+
+    private static boolean is(char c, int flags) {
+        return c < CLASSES.length && (CLASSES[c] & flags) != 0;
+    }
+
+    private static void mark(String characters, int flags) {
+        for (char c : characters.toCharArray()) {
+            CLASSES[c] |= flags;
+        }
+    }
+
+    /**
+     * The characters being lexed, addressed by their absolute index from the
+     * start of the input.
+     */
+    private interface Input extends Symbols.Source {
+
+        boolean has(int index);
+
+        @Override
+        char get(int index);
+
+        CharSequence slice(int start, int end);
+
+        /**
+         * Signals that characters before {@code index} will not be read again.
+         */
+        void release(int index);
+
+    }
+
+    private static final class SequenceInput implements Input {
+
+        private final CharSequence sequence;
+
+        private SequenceInput(CharSequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean has(int index) {
+            return index < sequence.length();
+        }
+
+        @Override
+        public char get(int index) {
+            return sequence.charAt(index);
+        }
+
+        @Override
+        public CharSequence slice(int start, int end) {
+            return sequence.subSequence(start, end);
+        }
+
+        @Override
+        public void release(int index) {}
+
+    }
+
+    /**
+     * Reads characters into a window which is compacted as tokens are emitted,
+     * and only grows if a single token does not fit.
+     */
+    private static final class ReaderInput implements Input {
+
+        private final Reader reader;
+        private char[] buffer;
+        private int offset = 0;
+        private int limit = 0;
+        private int released = 0;
+        private boolean eof = false;
+
+        private ReaderInput(Reader reader, int bufferSize) {
+            this.reader = reader;
+            this.buffer = new char[bufferSize];
+        }
+
+        @Override
+        public boolean has(int index) {
+            while (index >= offset + limit && !eof) {
+                fill();
+            }
+            return index < offset + limit;
+        }
+
+        @Override
+        public char get(int index) {
+            return buffer[index - offset];
+        }
+
+        @Override
+        public CharSequence slice(int start, int end) {
+            return new String(buffer, start - offset, end - start);
+        }
+
+        @Override
+        public void release(int index) {
+            released = index;
+        }
+
+        private void fill() {
+            if (limit == buffer.length) {
+                int retained = offset + limit - released;
+                if (retained == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                } else {
+                    System.arraycopy(buffer, released - offset, buffer, 0, retained);
+                    offset = released;
+                    limit = retained;
+                }
+            }
+            try {
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    limit += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Decodes UTF-8 from a byte buffer into a window of characters, recording
+     * the byte position of each character so tokens can be sliced from the
+     * buffer directly. Malformed input is decoded as U+FFFD.
+     */
+    private static final class MappedInput implements Input {
+
+        private static final int CONTINUATION = -1;
+
+        private final ByteBuffer bytes;
+        private char[] chars;
+        private int[] positions;
+        private int offset = 0;
+        private int limit = 0;
+        private int released = 0;
+
+        private MappedInput(ByteBuffer bytes, int bufferSize) {
+            this.bytes = bytes;
+            this.chars = new char[bufferSize];
+            this.positions = new int[bufferSize];
+        }
+
+        @Override
+        public boolean has(int index) {
+            while (index >= offset + limit && bytes.hasRemaining()) {
+                decode();
+            }
+            return index < offset + limit;
+        }
+
+        @Override
+        public char get(int index) {
+            return chars[index - offset];
+        }
+
+        @Override
+        public CharSequence slice(int start, int end) {
+            int from = positions[start - offset];
+            int to = end < offset + limit ? positions[end - offset] : bytes.position();
+            if (from == CONTINUATION || to == CONTINUATION) {
+                // The slice splits a surrogate pair, which has no byte range.
+                return new String(chars, start - offset, end - start);
+            }
+            return new Utf8Slice(bytes, from, to);
+        }
+
+        @Override
+        public void release(int index) {
+            released = index;
+        }
+
+        private void decode() {
+            if (limit + 2 > chars.length) {
+                int retained = offset + limit - released;
+                if (retained + 2 > chars.length) {
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                } else {
+                    System.arraycopy(chars, released - offset, chars, 0, retained);
+                    System.arraycopy(positions, released - offset, positions, 0, retained);
+                    offset = released;
+                    limit = retained;
+                }
+            }
+            int position = bytes.position();
+            int b = bytes.get() & 0xFF;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                codePoint = continuation(b & 0x1F, 1, 0x80);
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                codePoint = continuation(b & 0x0F, 2, 0x800);
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                codePoint = continuation(b & 0x07, 3, 0x10000);
+            } else {
+                codePoint = 0xFFFD;
+            }
+            positions[limit] = position;
+            if (Character.isBmpCodePoint(codePoint)) {
+                chars[limit++] = (char) codePoint;
+            } else {
+                chars[limit++] = Character.highSurrogate(codePoint);
+                positions[limit] = CONTINUATION;
+                chars[limit++] = Character.lowSurrogate(codePoint);
+            }
+        }
+
+        /**
+         * Reads {@code count} continuation bytes, returning U+FFFD (and leaving
+         * the offending byte unread) if the sequence is malformed or overlong.
+         */
+        private int continuation(int codePoint, int count, int minimum) {
+            for (int i = 0; i < count; i++) {
+                if (!bytes.hasRemaining() || (bytes.get(bytes.position()) & 0xC0) != 0x80) {
+                    return 0xFFFD;
+                }
+                codePoint = (codePoint << 6) | (bytes.get() & 0x3F);
+            }
+            if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+                return 0xFFFD;
+            }
+            return codePoint;
+        }
+
+    }
+
+    /**
+     * A token literal backed by a range of UTF-8 bytes, decoded on first use
+     * and then kept, so reading it character by character decodes it once.
+     */
+    private static final class Utf8Slice implements CharSequence {
+
+        private final ByteBuffer bytes;
+        private final int start;
+        private final int end;
+        private String decoded;
+
+        private Utf8Slice(ByteBuffer bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (decoded == null) {
+                byte[] copy = new byte[end - start];
+                for (int i = 0; i < copy.length; i++) {
+                    copy[i] = bytes.get(start + i);
+                }
+                decoded = new String(copy, StandardCharsets.UTF_8);
+            }
+            return decoded;
+        }
+
+    }
+
+}
@@ -12,13 +12,25 @@ public final class Token {
     }
 
     private final Type type;
-    private final String literal;
+    private final CharSequence slice;
+    private String literal;
     private final int index;
+    private final int symbol;
 
     public Token(Type type, String literal, int index) {
+        this(type, literal, index, Symbols.NONE);
+    }
+
+    /**
+     * Creates a token whose literal is a view of the source, such as a slice
+     * of a memory-mapped file, which is only copied into a {@link String} the
+     * first time {@link #getLiteral()} is called.
+     */
+    Token(Type type, CharSequence slice, int index, int symbol) {
         this.type = type;
-        this.literal = literal;
+        this.slice = slice;
         this.index = index;
+        this.symbol = symbol;
     }
 
     public Type getType() {
@@ -26,6 +38,9 @@ public final class Token {
     }
 
     public String getLiteral() {
+        if (literal == null) {
+            literal = slice.toString();
+        }
         return literal;
     }
 
@@ -33,17 +48,26 @@ public final class Token {
         return index;
     }
 
+    /**
+     * Returns the id of a keyword or operator interned by {@link TableLexer},
+     * whose literal is then the canonical instance of that keyword, or zero
+     * for any other token.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
                 && type == ((Token) obj).type
-                && literal.equals(((Token) obj).literal)
+                && getLiteral().equals(((Token) obj).getLiteral())
                 && index == ((Token) obj).index;
     }
 
     @Override
     public String toString() {
-        return type + "=" + literal + "@" + index;
+        return type + "=" + getLiteral() + "@" + index;
     }
 
 }
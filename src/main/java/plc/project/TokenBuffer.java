@@ -0,0 +1,106 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A compact list of tokens stored as parallel arrays of type ordinals, start
+ * offsets, and lengths into the original source. A {@link Parser} can consume
+ * the buffer directly, comparing literals against the source in place, so
+ * {@link Token} objects are only created if one is requested with {@link
+ * #get(int)}, such as when reporting an error.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final CharSequence source;
+    private byte[] types = new byte[64];
+    private byte[] symbols = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int size = 0;
+
+    private TokenBuffer(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * Lexes the source with a {@link TableLexer} into a new buffer.
+     */
+    public static TokenBuffer lex(CharSequence source) {
+        TokenBuffer buffer = new TokenBuffer(source);
+        new TableLexer(source).lex(buffer);
+        return buffer;
+    }
+
+    void add(Token.Type type, int start, int length, int symbol) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            symbols = Arrays.copyOf(symbols, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        symbols[size] = (byte) symbol;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Token.Type getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the keyword or operator id of the token, as in {@link
+     * Token#getSymbol()}.
+     */
+    public int getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public String getLiteral(int index) {
+        if (symbols[index] != Symbols.NONE) {
+            return Symbols.literal(symbols[index]);
+        }
+        return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+    }
+
+    /**
+     * Returns true if the literal of the token at {@code index} is equal to
+     * the given literal, without copying it out of the source. Keywords and
+     * operators are compared by identity, so the literal must be a string
+     * constant (or otherwise interned) to match one.
+     */
+    public boolean matches(int index, String literal) {
+        if (symbols[index] != Symbols.NONE) {
+            return Symbols.literal(symbols[index]) == literal;
+        } else if (lengths[index] != literal.length()) {
+            return false;
+        }
+        int start = starts[index];
+        for (int i = 0; i < literal.length(); i++) {
+            if (source.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Token get(int index) {
+        return new Token(getType(index), getLiteral(index), starts[index], symbols[index]);
+    }
+
+}
@@ -9,8 +9,11 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -120,6 +123,94 @@ public final class AnalyzerTests {
 
 
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testParallelSource(String test, String input) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("outer", 0, args -> Environment.NIL);
+        Ast.Source expected = new Parser(TokenBuffer.lex(input)).parseSource();
+        Ast.Source ast = new Parser(TokenBuffer.lex(input)).parseSource();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            try {
+                new Analyzer(scope).visit(expected);
+            } catch (RuntimeException e) {
+                RuntimeException actual = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(scope).visit(ast, pool));
+                Assertions.assertEquals(e.getMessage(), actual.getMessage());
+                return;
+            }
+            new Analyzer(scope).visit(ast, pool);
+            Assertions.assertEquals(expected, ast);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallelSource() {
+        return Stream.of(
+                Arguments.of("Generated", Benchmarks.generateAnalyzableSource(100)),
+                Arguments.of("Backward Call", "DEF f(): Integer DO RETURN 1; END\nDEF main(): Integer DO RETURN f(); END"),
+                Arguments.of("Forward Call", "DEF main(): Integer DO RETURN f(); END\nDEF f(): Integer DO RETURN 1; END"),
+                Arguments.of("Forward Call Outer", "DEF main(): Integer DO outer(); RETURN 0; END\nDEF outer() DO END"),
+                Arguments.of("Recursive Call", "DEF main(): Integer DO RETURN main(); END"),
+                Arguments.of("First Error", "DEF f() DO IF 1 DO print(1); END END\nDEF g() DO 1; END\nDEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Body Error Before Signature Error", "DEF f() DO 1; END\nDEF g(): Unknown DO END\nDEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Signature Error Before Body Error", "DEF f(): Unknown DO END\nDEF g() DO 1; END\nDEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Duplicate Method", "DEF main(): Integer DO RETURN 0; END\nDEF main(): Integer DO RETURN 1; END"),
+                Arguments.of("Field Error", "LET x: Integer = 1.0;\nDEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Missing Main", "DEF f() DO END")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testCollectErrors(String test, String input, List<String> expected) {
+        Ast.Source ast = new Parser(TokenBuffer.lex(input)).parseSource();
+        List<RuntimeException> errors = new ArrayList<>();
+        new Analyzer(new Scope(null)).visit(ast, errors);
+        Assertions.assertEquals(expected, errors.stream().map(Throwable::getMessage).collect(Collectors.toList()));
+        Ast.Source sequential = new Parser(TokenBuffer.lex(input)).parseSource();
+        if (expected.isEmpty()) {
+            new Analyzer(new Scope(null)).visit(sequential);
+            Assertions.assertEquals(sequential, ast);
+        } else {
+            RuntimeException first = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(sequential));
+            Assertions.assertEquals(first.getMessage(), expected.get(0));
+        }
+    }
+
+    private static Stream<Arguments> testCollectErrors() {
+        return Stream.of(
+                Arguments.of("No Errors", Benchmarks.generateAnalyzableSource(5), Arrays.asList()),
+                Arguments.of("Statement Errors",
+                        "LET x: Integer = 1.0;\n" +
+                        "DEF main(): Integer DO\n" +
+                        "    LET y: Integer = \"string\";\n" +
+                        "    y = 1;\n" +
+                        "    print(z);\n" +
+                        "    IF 1 DO print(1); END\n" +
+                        "    WHILE TRUE DO print(TRUE + 1); END\n" +
+                        "    RETURN x;\n" +
+                        "END",
+                        Arrays.asList(
+                                "Target type and given type do not match.",
+                                "Target type and given type do not match.",
+                                "The variable z is not defined in this scope.",
+                                "Condition is not a Boolean.",
+                                "Invalid binary expression."
+                        )
+                ),
+                Arguments.of("Method Errors",
+                        "DEF f(): Unknown DO END\nDEF main(): Integer DO RETURN f(); END",
+                        Arrays.asList("Unknown type Unknown.", "The function f/0 is not defined in this scope.")
+                ),
+                Arguments.of("Missing Main",
+                        "DEF f() DO 1; END",
+                        Arrays.asList("Expression is not a Function.", "The function main/0 is not defined in this scope.")
+                )
+        );
+    }
+
     @ParameterizedTest(name = "{0}")
     @MethodSource
     public void testDeclarationStatement(String test, Ast.Stmt.Declaration ast, Ast.Stmt.Declaration expected) {
@@ -353,6 +444,36 @@ public final class AnalyzerTests {
                                 new Ast.Expr.Literal(BigDecimal.ONE)
                         ),
                         null
+                ),
+                Arguments.of("Integer Comparison",
+                        // 1 < 2
+                        new Ast.Expr.Binary("<",
+                                new Ast.Expr.Literal(BigInteger.ONE),
+                                new Ast.Expr.Literal(BigInteger.valueOf(2))
+                        ),
+                        init(new Ast.Expr.Binary("<",
+                                init(new Ast.Expr.Literal(BigInteger.ONE), ast -> ast.setType(Environment.Type.INTEGER)),
+                                init(new Ast.Expr.Literal(BigInteger.valueOf(2)), ast -> ast.setType(Environment.Type.INTEGER))
+                        ), ast -> ast.setType(Environment.Type.BOOLEAN))
+                ),
+                Arguments.of("String Equality",
+                        // "a" == "b"
+                        new Ast.Expr.Binary("==",
+                                new Ast.Expr.Literal("a"),
+                                new Ast.Expr.Literal("b")
+                        ),
+                        init(new Ast.Expr.Binary("==",
+                                init(new Ast.Expr.Literal("a"), ast -> ast.setType(Environment.Type.STRING)),
+                                init(new Ast.Expr.Literal("b"), ast -> ast.setType(Environment.Type.STRING))
+                        ), ast -> ast.setType(Environment.Type.BOOLEAN))
+                ),
+                Arguments.of("Boolean Comparison",
+                        // TRUE < FALSE
+                        new Ast.Expr.Binary("<",
+                                new Ast.Expr.Literal(Boolean.TRUE),
+                                new Ast.Expr.Literal(Boolean.FALSE)
+                        ),
+                        null
                 )
         );
     }
@@ -0,0 +1,82 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class AstSerializerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRoundTrip(String test, String input) {
+        Ast.Source ast = analyze(input);
+        Ast.Source copy = AstSerializer.deserialize(AstSerializer.serialize(ast));
+        Assertions.assertEquals(ast, copy);
+        Assertions.assertEquals(generate(ast), generate(copy));
+    }
+
+    private static Stream<Arguments> testRoundTrip() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Literals", "LET b: Boolean = TRUE; LET c: Character = 'c'; LET s: String = \"\u00e9\\n\"; LET i: Integer = 2147483647; LET d: Decimal = -0.00125; DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Statements", "LET total: Integer = 0; DEF add(x: Integer): Integer DO print(x); RETURN total + 1; END DEF main(): Integer DO LET i = 0; WHILE i < 10 DO IF (i / 2) * 2 == i DO total = add(i); ELSE print(i); END i = i + 1; END RETURN total; END"),
+                Arguments.of("Members", "DEF main(): Integer DO LET s: String = \"abc\"; print(s.length); print(s.compare(\"abd\")); RETURN s.length; END")
+        );
+    }
+
+    @Test
+    void testSharedSymbols() {
+        Ast.Source copy = AstSerializer.deserialize(AstSerializer.serialize(analyze("LET x: Integer = 1; DEF main(): Integer DO RETURN x; END")));
+        Ast.Stmt.Return stmt = (Ast.Stmt.Return) copy.getMethods().get(0).getStatements().get(0);
+        Assertions.assertSame(copy.getFields().get(0).getVariable(), ((Ast.Expr.Access) stmt.getValue()).getVariable());
+        Assertions.assertSame(Environment.Type.INTEGER, copy.getFields().get(0).getVariable().getType());
+    }
+
+    @Test
+    void testResolvedFile() throws Exception {
+        Ast.Source ast = analyze("LET x: Integer = 20; DEF twice(n: Integer): Integer DO print(n); RETURN x * 2; END DEF main(): Integer DO LET y = twice(x); RETURN y + 1; END");
+        new Resolver().visit(ast);
+        Path path = Files.createTempFile("ast", ".bin");
+        try {
+            AstSerializer.serialize(ast, path);
+            Ast.Source copy = AstSerializer.deserialize(path);
+            Assertions.assertEquals(ast.getFrameSize(), copy.getFrameSize());
+            Assertions.assertEquals(ast.getMethods().get(1).getFrameSize(), copy.getMethods().get(1).getFrameSize());
+            Assertions.assertEquals(BigInteger.valueOf(41), new Compiler(new Scope(null)).compile(copy).execute().getValue());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testVersion() {
+        byte[] bytes = AstSerializer.serialize(analyze("DEF main(): Integer DO RETURN 0; END"));
+        ByteBuffer.wrap(bytes).putInt(4, AstSerializer.VERSION + 1);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> AstSerializer.deserialize(bytes));
+        Assertions.assertEquals("Unsupported serialized AST version " + (AstSerializer.VERSION + 1) + ", expected " + AstSerializer.VERSION + ".", exception.getMessage());
+        Assertions.assertThrows(RuntimeException.class, () -> AstSerializer.deserialize(new byte[] {1, 2, 3}));
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new TableLexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
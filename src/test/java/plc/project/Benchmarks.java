@@ -0,0 +1,258 @@
+package plc.project;
+
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Simple wall-clock benchmarks, run manually through {@link #main(String[])}.
+ * They are not part of the test suite and only print their measurements.
+ */
+public final class Benchmarks {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        binaryNesting();
+        lexing();
+        parsing();
+        parallelParsing();
+        parallelAnalysis();
+        execution();
+        recursion();
+        methodCalls();
+        loading();
+    }
+
+    /**
+     * Evaluates left-nested additions of increasing depth. Each operand is
+     * visited once, so the time per node should stay roughly constant.
+     */
+    static void binaryNesting() {
+        for (int depth = 250; depth <= 2000; depth *= 2) {
+            Ast.Expr expr = new Ast.Expr.Literal(BigInteger.ONE);
+            for (int i = 1; i < depth; i++) {
+                expr = new Ast.Expr.Binary("+", expr, new Ast.Expr.Literal(BigInteger.ONE));
+            }
+            Ast.Expr ast = expr;
+            Interpreter interpreter = new Interpreter(new Scope(null));
+            report("binary nesting depth " + depth, depth, () -> interpreter.visit(ast));
+        }
+    }
+
+    /**
+     * Lexes the same generated source with the regex-based {@link Lexer} and
+     * the table-driven {@link TableLexer}.
+     */
+    static void lexing() {
+        String source = generateSource(200);
+        report("Lexer (" + source.length() + " chars)", source.length(), () -> new Lexer(source).lex());
+        report("TableLexer (" + source.length() + " chars)", source.length(), () -> new TableLexer(source).lex());
+    }
+
+    /**
+     * Parses the same generated source from a token list and from a {@link
+     * TokenBuffer}, including lexing.
+     */
+    static void parsing() {
+        String source = generateSource(200);
+        report("Parser (token list)", source.length(), () -> new Parser(new TableLexer(source).lex()).parseSource());
+        report("Parser (token buffer)", source.length(), () -> new Parser(TokenBuffer.lex(source)).parseSource());
+    }
+
+    /**
+     * Parses a large generated source sequentially and with {@link
+     * Parser#parseSource(List, ForkJoinPool)} on pools of 1 up to the number
+     * of available processors, excluding lexing.
+     */
+    static void parallelParsing() {
+        String source = generateSource(2000);
+        List<Token> tokens = new TableLexer(source).lex();
+        report("Parser (sequential)", tokens.size(), () -> new Parser(tokens).parseSource());
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            report("Parser (parallel, " + threads + " threads)", tokens.size(), () -> Parser.parseSource(tokens, pool));
+            pool.shutdown();
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Runs a loop-heavy program with the {@link Interpreter}, before and after
+     * resolving it, as a {@link Compiler.Program}, and as a class generated by
+     * the {@link BytecodeGenerator}.
+     */
+    static void execution() throws ReflectiveOperationException {
+        int iterations = 10000;
+        String source = "DEF main(): Integer DO\n" +
+                "    LET i: Integer = 0;\n" +
+                "    LET total: Integer = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        IF i / 2 * 2 == i DO total = total + i; ELSE total = total - 1; END\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN total;\n" +
+                "END\n";
+        Ast.Source unresolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        Ast.Source resolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        new Resolver().visit(resolved);
+        Compiler.Program program = new Compiler(new Scope(null)).compile(resolved);
+        report("Interpreter (scopes)", iterations, () -> new Interpreter(new Scope(null)).visit(unresolved));
+        report("Interpreter (slots)", iterations, () -> new Interpreter(new Scope(null)).visit(resolved));
+        report("Compiler", iterations, program::execute);
+        Ast.Source analyzed = new Parser(TokenBuffer.lex(source)).parseSource();
+        new Analyzer(new Scope(null)).visit(analyzed);
+        Class<?> type = BytecodeGenerator.define("Main", new BytecodeGenerator("Main").generate(analyzed));
+        Method main = type.getDeclaredMethod("main");
+        main.setAccessible(true);
+        report("BytecodeGenerator", iterations, () -> {
+            try {
+                main.invoke(type.getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    /**
+     * Computes a Fibonacci number recursively with the {@link Interpreter} and
+     * the {@link StackMachine}, so the time is dominated by method calls and
+     * their RETURN statements.
+     */
+    static void recursion() {
+        int n = 20;
+        String source = "DEF fib(n: Integer): Integer DO\n" +
+                "    IF n < 2 DO RETURN n; END\n" +
+                "    RETURN fib(n - 1) + fib(n - 2);\n" +
+                "END\n" +
+                "DEF main(): Integer DO RETURN fib(" + n + "); END\n";
+        int calls = 2 * 10946 - 1;
+        Ast.Source unresolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        Ast.Source resolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        new Resolver().visit(resolved);
+        report("fib(" + n + ") Interpreter (scopes)", calls, () -> new Interpreter(new Scope(null)).visit(unresolved));
+        report("fib(" + n + ") Interpreter (slots)", calls, () -> new Interpreter(new Scope(null)).visit(resolved));
+        StackMachine.Program program = new StackMachine(new Scope(null)).compile(resolved);
+        report("fib(" + n + ") StackMachine", calls, program::execute);
+    }
+
+    /**
+     * Calls a method of a host object in a loop with the {@link Interpreter}
+     * and the {@link StackMachine}. The call site's {@link MethodCache} looks
+     * the method up once, so the time is dominated by the call itself.
+     */
+    static void methodCalls() {
+        int calls = 1000;
+        Scope methods = new Scope(null);
+        methods.defineFunction("next", 2, args -> Environment.create(args.get(1).getInteger() + 1));
+        Environment.Type type = new Environment.Type("Counter", "Counter", methods);
+        Scope scope = new Scope(null);
+        scope.defineVariable("counter", new Environment.PlcObject(type, methods, "counter"));
+        String source = "DEF main(): Integer DO\n" +
+                "    LET i = 0;\n" +
+                "    WHILE i < " + calls + " DO i = counter.next(i); END\n" +
+                "    RETURN i;\n" +
+                "END\n";
+        Ast.Source unresolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        Ast.Source resolved = new Parser(TokenBuffer.lex(source)).parseSource();
+        new Resolver().visit(resolved);
+        report("method calls Interpreter", calls, () -> new Interpreter(new Scope(scope)).visit(unresolved));
+        StackMachine.Program program = new StackMachine(scope).compile(resolved);
+        report("method calls StackMachine", calls, program::execute);
+    }
+
+    /**
+     * Loads the same analyzed source by lexing, parsing, and analyzing it, and
+     * by deserializing it with the {@link AstSerializer}.
+     */
+    static void loading() {
+        String source = generateAnalyzableSource(200);
+        Supplier<Ast.Source> analyze = () -> {
+            Ast.Source ast = new Parser(TokenBuffer.lex(source)).parseSource();
+            new Analyzer(new Scope(null)).visit(ast);
+            return ast;
+        };
+        byte[] bytes = AstSerializer.serialize(analyze.get());
+        report("Analyzer (" + source.length() + " chars)", source.length(), analyze::get);
+        report("AstSerializer (" + bytes.length + " bytes)", source.length(), () -> AstSerializer.deserialize(bytes));
+    }
+
+    /**
+     * Analyzes a large generated source sequentially and with {@link
+     * Analyzer#visit(Ast.Source, ForkJoinPool)} on pools of 1 up to the number
+     * of available processors, excluding parsing.
+     */
+    static void parallelAnalysis() {
+        String source = generateAnalyzableSource(2000);
+        List<Token> tokens = new TableLexer(source).lex();
+        report("Analyzer (sequential)", tokens.size(), () -> new Analyzer(new Scope(null)).visit(new Parser(tokens).parseSource()));
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            report("Analyzer (parallel, " + threads + " threads)", tokens.size(), () -> new Analyzer(new Scope(null)).visit(new Parser(tokens).parseSource(), pool));
+            pool.shutdown();
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Generates a source with the given number of methods which passes the
+     * {@link Analyzer}, since unlike {@link #generateSource(int)} it does not
+     * use the untyped parameters in arithmetic.
+     */
+    static String generateAnalyzableSource(int methods) {
+        StringBuilder builder = new StringBuilder("LET counter: Integer = 0;\n");
+        for (int i = 0; i < methods; i++) {
+            builder.append("DEF method").append(i).append("(x: Integer): Integer DO\n")
+                    .append("    LET total: Integer = 0;\n")
+                    .append("    WHILE total < counter DO total = total + (counter * 2 - 1) / 3; END\n")
+                    .append("    print(\"iteration\");\n")
+                    .append("    RETURN total;\n")
+                    .append("END\n");
+        }
+        builder.append("DEF main(): Integer DO\n    RETURN method0(10);\nEND\n");
+        return builder.toString();
+    }
+
+    /**
+     * Generates a source with the given number of methods, each containing a
+     * loop over arithmetic, comparisons, and string literals.
+     */
+    static String generateSource(int methods) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LET counter: Integer = 0;\n");
+        for (int i = 0; i < methods; i++) {
+            builder.append("DEF method").append(i).append("(x: Integer): Integer DO\n")
+                    .append("    LET total: Integer = 0;\n")
+                    .append("    WHILE total < x DO\n")
+                    .append("        total = total + (x * 2 - 1) / 3;\n")
+                    .append("        print(\"iteration\\n\");\n")
+                    .append("    END\n")
+                    .append("    RETURN total;\n")
+                    .append("END\n");
+        }
+        builder.append("DEF main(): Integer DO\n    RETURN method0(10);\nEND\n");
+        return builder.toString();
+    }
+
+    static void report(String name, int nodes, Runnable runnable) {
+        for (int i = 0; i < WARMUP; i++) {
+            runnable.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        long elapsed = (System.nanoTime() - start) / ITERATIONS;
+        System.out.printf("%-40s %12d ns/op %10.1f ns/unit%n", name, elapsed, (double) elapsed / nodes);
+    }
+
+}
@@ -0,0 +1,90 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.stream.Stream;
+
+public class BytecodeGeneratorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, String input, int expected) throws Exception {
+        Assertions.assertEquals(expected, run(input));
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO RETURN 0; END", 0),
+                Arguments.of("Large Literal", "DEF main(): Integer DO RETURN 100000 - 1000 - 100 - 1; END", 98899),
+                Arguments.of("Fields", "LET x: Integer = 2; LET y: Integer = x * 10; DEF main(): Integer DO RETURN x + y; END", 22),
+                Arguments.of("While", "LET total: Integer = 0; DEF main(): Integer DO LET i = 0; WHILE i < 10 DO total = total + i; i = i + 1; END RETURN total; END", 45),
+                Arguments.of("If Else", "DEF main(): Integer DO LET i = 7; IF i / 2 * 2 == i DO RETURN 0; ELSE RETURN 1; END END", 1),
+                Arguments.of("Decimal", "LET d: Decimal = 1.5; DEF main(): Integer DO IF d * 2.0 - 0.5 > 2.0 DO RETURN 1; END RETURN 0; END", 1),
+                Arguments.of("Logical", "DEF main(): Integer DO LET i = 3; IF (i >= 3 AND i != 4) OR FALSE DO RETURN 1; END RETURN 0; END", 1),
+                Arguments.of("String Comparison", "DEF main(): Integer DO IF \"a\" < \"b\" AND \"b\" == \"b\" DO RETURN 1; END RETURN 0; END", 1),
+                Arguments.of("String Length", "DEF main(): Integer DO LET s = \"abc\" + 1; RETURN s.length; END", 4),
+                Arguments.of("Method Call", "DEF two(): Integer DO RETURN 2; END DEF main(): Integer DO RETURN two() * two(); END", 4),
+                Arguments.of("Recursion", "LET c: Integer = 0; DEF f(): Integer DO c = c + 1; IF c < 5 DO RETURN f(); END RETURN c; END DEF main(): Integer DO RETURN f(); END", 5),
+                Arguments.of("Sibling Blocks", "DEF main(): Integer DO LET r = 0; IF TRUE DO LET d = 2.5; ELSE LET s = \"s\"; END IF TRUE DO LET i = 1; r = i; END RETURN r; END", 1)
+        );
+    }
+
+    @Test
+    void testPrint() throws Exception {
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            run("DEF show(x: Decimal, y: Integer) DO print(x); print(y); END DEF main(): Integer DO show(0.5, 3); print(\"a\" + 1); RETURN 0; END");
+            Assertions.assertEquals(String.join(System.lineSeparator(), "0.5", "3", "a1", ""), out.toString());
+        } finally {
+            System.setOut(sysout);
+        }
+    }
+
+    @Test
+    void testStaticMain() throws Exception {
+        Class<?> type = define("DEF main(): Integer DO RETURN 0; END");
+        Method main = type.getDeclaredMethod("main", String[].class);
+        Assertions.assertTrue(Modifier.isStatic(main.getModifiers()));
+    }
+
+    @Test
+    void testClassFileLimits() {
+        StringBuilder method = new StringBuilder("LET x: Integer = 0; DEF main(): Integer DO ");
+        for (int i = 0; i < 20000; i++) {
+            method.append("x = x + 1; ");
+        }
+        RuntimeException tooLarge = Assertions.assertThrows(RuntimeException.class, () -> define(method.append("RETURN x; END").toString()));
+        Assertions.assertEquals("The method main is too large to compile.", tooLarge.getMessage());
+
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            string.append('a');
+        }
+        RuntimeException tooLong = Assertions.assertThrows(RuntimeException.class, () -> define("LET s: String = \"" + string + "\"; DEF main(): Integer DO RETURN 0; END"));
+        Assertions.assertEquals("The string constant of 70000 bytes is too long to compile.", tooLong.getMessage());
+    }
+
+    private static int run(String input) throws Exception {
+        Class<?> type = define(input);
+        Method main = type.getDeclaredMethod("main");
+        main.setAccessible(true);
+        return (Integer) main.invoke(type.getDeclaredConstructor().newInstance());
+    }
+
+    private static Class<?> define(String input) {
+        Ast.Source ast = new Parser(new TableLexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return BytecodeGenerator.define("Main", new BytecodeGenerator("Main").generate(ast));
+    }
+
+}
@@ -0,0 +1,50 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompileAndRunTests {
+
+    private static final String SOURCE = String.join(System.lineSeparator(),
+            "public class Main {",
+            "",
+            "    int x = 20;",
+            "",
+            "    public static void main(String[] args) {",
+            "        System.exit(new Main().main());",
+            "    }",
+            "",
+            "    int main() {",
+            "        return x + 1;",
+            "    }",
+            "",
+            "}"
+    );
+
+    @Test
+    void testRunSource() {
+        Assertions.assertEquals(21, new CompileAndRun().run(SOURCE));
+    }
+
+    @Test
+    void testRunAst() {
+        Ast.Source ast = new Parser(new TableLexer("LET x: Integer = 20; DEF main(): Integer DO RETURN x + 1; END").lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Assertions.assertEquals(21, new CompileAndRun().run(ast));
+    }
+
+    @Test
+    void testCache() {
+        CompileAndRun compileAndRun = new CompileAndRun();
+        Class<?> type = compileAndRun.compile(SOURCE);
+        Assertions.assertSame(type, compileAndRun.compile(SOURCE));
+        Assertions.assertNotSame(type, compileAndRun.compile(SOURCE.replace("20", "30")));
+        Assertions.assertEquals(31, compileAndRun.run(SOURCE.replace("20", "30")));
+    }
+
+    @Test
+    void testCompileError() {
+        Assertions.assertThrows(RuntimeException.class, () -> new CompileAndRun().compile("public class Main { int main() { return; } }"));
+    }
+
+}
@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Executes one compiled source on several threads at once with each backend,
+ * checking that every execution has its own fields.
+ */
+public class ConcurrentExecutionTests {
+
+    private static final String SOURCE = "LET calls: Integer = 0; " +
+            "DEF fib(n: Integer): Integer DO calls = calls + 1; IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END " +
+            "DEF main() DO RETURN fib(15) * 10000 + calls; END";
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testConcurrentExecution(String test, Function<Ast.Source, Callable<Environment.PlcObject>> backend) throws Exception {
+        Ast.Source ast = new Parser(new TableLexer(SOURCE).lex()).parseSource();
+        new Resolver().visit(ast);
+        Callable<Environment.PlcObject> program = backend.apply(ast);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Environment.PlcObject>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(program));
+            }
+            for (Future<Environment.PlcObject> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(610 * 10000 + 1973), result.get().getValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testConcurrentExecution() {
+        return Stream.of(
+                Arguments.of("Compiler", (Function<Ast.Source, Callable<Environment.PlcObject>>) ast -> {
+                    Compiler.Program program = new Compiler(new Scope(null)).compile(ast);
+                    return program::execute;
+                }),
+                Arguments.of("StackMachine", (Function<Ast.Source, Callable<Environment.PlcObject>>) ast -> {
+                    StackMachine.Program program = new StackMachine(new Scope(null)).compile(ast);
+                    return program::execute;
+                }),
+                Arguments.of("Interpreter", (Function<Ast.Source, Callable<Environment.PlcObject>>) ast ->
+                        () -> new Interpreter(new Scope(null)).visit(ast))
+        );
+    }
+
+}
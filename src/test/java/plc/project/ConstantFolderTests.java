@@ -0,0 +1,105 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+public class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testFold(String test, String input, String expected) {
+        Ast.Source ast = analyze(input);
+        Ast.Source folded = new ConstantFolder().visit(ast);
+        Assertions.assertEquals(analyze(expected), folded);
+        Assertions.assertEquals(evaluate(analyze(input)), evaluate(folded));
+    }
+
+    private static Stream<Arguments> testFold() {
+        return Stream.of(
+                Arguments.of("Integer Arithmetic",
+                        "DEF main(): Integer DO RETURN 1 + 2 * 3 - 8 / 2; END",
+                        "DEF main(): Integer DO RETURN 3; END"),
+                Arguments.of("Decimal Arithmetic",
+                        "LET d: Decimal = 1.5 + 2.25 * 2.0; DEF main(): Integer DO RETURN 0; END",
+                        "LET d: Decimal = 6.000; DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Decimal Division",
+                        "LET d: Decimal = 1.0 / 3.0; DEF main(): Integer DO RETURN 0; END",
+                        "LET d: Decimal = 0.3; DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("String Concatenation",
+                        "LET s: String = \"a\" + \"b\"; DEF main(): Integer DO RETURN 0; END",
+                        "LET s: String = \"ab\"; DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Comparison",
+                        "LET b: Boolean = 1 < 2 AND \"a\" != \"b\"; DEF main(): Integer DO RETURN 0; END",
+                        "LET b: Boolean = TRUE; DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Group",
+                        "DEF main(): Integer DO RETURN (1 + 2) * (3 + 4); END",
+                        "DEF main(): Integer DO RETURN 21; END"),
+                Arguments.of("Identities",
+                        "LET x: Integer = 2; DEF main(): Integer DO RETURN (x + 0) * 1 - 0 + 0 * x / 1; END",
+                        "LET x: Integer = 2; DEF main(): Integer DO RETURN x + 0 * x; END"),
+                Arguments.of("Logical",
+                        "LET b: Boolean = TRUE; DEF f(): Boolean DO RETURN b; END " +
+                        "DEF main(): Integer DO LET c: Boolean = TRUE AND b; LET d: Boolean = FALSE AND f(); LET e: Boolean = f() OR FALSE; LET g: Boolean = f() AND FALSE; RETURN 0; END",
+                        "LET b: Boolean = TRUE; DEF f(): Boolean DO RETURN b; END " +
+                        "DEF main(): Integer DO LET c: Boolean = b; LET d: Boolean = FALSE; LET e: Boolean = f(); LET g: Boolean = f() AND FALSE; RETURN 0; END"),
+                Arguments.of("Nested Statements",
+                        "LET x: Integer = 0; DEF main(): Integer DO WHILE x < 2 + 3 DO IF x == 1 * 1 DO x = x + 2 - 1; ELSE x = x + 1; END END RETURN x; END",
+                        "LET x: Integer = 0; DEF main(): Integer DO WHILE x < 5 DO IF x == 1 DO x = x + 2 - 1; ELSE x = x + 1; END END RETURN x; END"),
+                Arguments.of("Division By Zero",
+                        "DEF main(): Integer DO RETURN 1 / (1 - 1); END",
+                        "DEF main(): Integer DO RETURN 1 / 0; END"),
+                Arguments.of("Integer Overflow",
+                        "DEF main(): Integer DO RETURN 2147483647 + 1; END",
+                        "DEF main(): Integer DO RETURN 2147483647 + 1; END")
+        );
+    }
+
+    @Test
+    void testReuse() {
+        Ast.Source ast = analyze("LET x: Integer = 1; DEF f(): Integer DO RETURN x; END DEF main(): Integer DO RETURN 1 + 1; END");
+        Ast.Source folded = new ConstantFolder().visit(ast);
+        Assertions.assertNotSame(ast, folded);
+        Assertions.assertSame(ast.getFields().get(0), folded.getFields().get(0));
+        Assertions.assertSame(ast.getMethods().get(0), folded.getMethods().get(0));
+        Assertions.assertNotSame(ast.getMethods().get(1), folded.getMethods().get(1));
+
+        Ast.Source unchanged = analyze("LET x: Integer = 1; DEF main(): Integer DO RETURN x + 1; END");
+        Assertions.assertSame(unchanged, new ConstantFolder().visit(unchanged));
+    }
+
+    @Test
+    void testResolved() {
+        Ast.Source ast = analyze("LET x: Integer = 20; DEF main(): Integer DO LET y: Integer = x * (1 + 1); RETURN y + 0; END");
+        new Resolver().visit(ast);
+        Ast.Source folded = new ConstantFolder().visit(ast);
+        Assertions.assertEquals(ast.getFrameSize(), folded.getFrameSize());
+        Assertions.assertEquals(ast.getMethods().get(0).getFrameSize(), folded.getMethods().get(0).getFrameSize());
+        Assertions.assertEquals(BigInteger.valueOf(40), new Compiler(new Scope(null)).compile(folded).execute().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(40), new Interpreter(new Scope(null)).visit(folded).getValue());
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new TableLexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    /**
+     * Returns the value returned by {@code main}, or the message of the error
+     * thrown while evaluating the source.
+     */
+    private static Object evaluate(Ast.Source ast) {
+        try {
+            return new Interpreter(new Scope(null)).visit(ast).getValue();
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+public class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEliminate(String test, String input, String expected, int removed) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source ast = eliminator.visit(analyze(input));
+        Assertions.assertEquals(analyze(expected), ast);
+        Assertions.assertEquals(removed, eliminator.getRemoved());
+    }
+
+    private static Stream<Arguments> testEliminate() {
+        return Stream.of(
+                Arguments.of("After Return",
+                        "DEF main(): Integer DO RETURN 1; print(2); RETURN 3; END",
+                        "DEF main(): Integer DO RETURN 1; END",
+                        5),
+                Arguments.of("After Returning If",
+                        "LET x: Integer = 1; DEF main(): Integer DO IF x == 1 DO RETURN 1; ELSE RETURN 2; END print(3); END",
+                        "LET x: Integer = 1; DEF main(): Integer DO IF x == 1 DO RETURN 1; ELSE RETURN 2; END END",
+                        3),
+                Arguments.of("Literal If",
+                        "DEF main(): Integer DO IF FALSE DO print(1); ELSE print(2); END RETURN 0; END",
+                        "DEF main(): Integer DO print(2); RETURN 0; END",
+                        5),
+                Arguments.of("Literal If Declaration",
+                        "DEF main(): Integer DO IF TRUE DO LET y: Integer = 1; print(y); ELSE print(2); END RETURN 0; END",
+                        "DEF main(): Integer DO IF TRUE DO LET y: Integer = 1; print(y); END RETURN 0; END",
+                        3),
+                Arguments.of("While False",
+                        "DEF main(): Integer DO WHILE FALSE DO print(1); END RETURN 0; END",
+                        "DEF main(): Integer DO RETURN 0; END",
+                        5),
+                Arguments.of("Unused Declarations",
+                        "LET x: Integer = 1; DEF f(): Integer DO RETURN 1; END DEF main(): Integer DO " +
+                        "LET a: Integer = x + 1; LET b: Integer = a * 2; LET c: Integer = f(); LET d: Integer = 1 / x; LET e: Integer; RETURN x; END",
+                        "LET x: Integer = 1; DEF f(): Integer DO RETURN 1; END DEF main(): Integer DO " +
+                        "LET c: Integer = f(); LET d: Integer = 1 / x; RETURN x; END",
+                        9),
+                Arguments.of("Uninitialized Operand",
+                        "DEF main(): Integer DO LET a: Integer; LET b: Integer = a + 1; LET c: Boolean = a == 1; RETURN 0; END",
+                        "DEF main(): Integer DO LET a: Integer; LET b: Integer = a + 1; RETURN 0; END",
+                        4),
+                Arguments.of("Nested",
+                        "LET x: Integer = 0; DEF main(): Integer DO WHILE x < 3 DO x = x + 1; IF TRUE DO RETURN x; END print(x); END RETURN 0; END",
+                        "LET x: Integer = 0; DEF main(): Integer DO WHILE x < 3 DO x = x + 1; RETURN x; END RETURN 0; END",
+                        5)
+        );
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = analyze("DEF main(): Integer DO LET a: Integer = 1; a = 2; IF a == 2 DO RETURN a; END RETURN 0; END");
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Assertions.assertSame(ast, eliminator.visit(ast));
+        Assertions.assertEquals(0, eliminator.getRemoved());
+    }
+
+    @Test
+    void testAfterConstantFolder() {
+        Ast.Source ast = analyze("LET x: Integer = 20; DEF main(): Integer DO IF 1 > 2 DO print(1); END LET unused: Integer = 2 * 3; LET y: Integer = x * (1 + 1); RETURN y; END");
+        new Resolver().visit(ast);
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source optimized = eliminator.visit(new ConstantFolder().visit(ast));
+        Assertions.assertEquals(7, eliminator.getRemoved());
+        Assertions.assertEquals(2, optimized.getMethods().get(0).getStatements().size());
+        Assertions.assertEquals(BigInteger.valueOf(40), new Compiler(new Scope(null)).compile(optimized).execute().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(40), new Interpreter(new Scope(null)).visit(optimized).getValue());
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new TableLexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
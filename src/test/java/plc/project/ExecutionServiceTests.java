@@ -0,0 +1,84 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutionServiceTests {
+
+    private static final String LOOP = "DEF main() DO WHILE TRUE DO END END";
+
+    @Test
+    void testOutput() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), Long.MAX_VALUE, Long.MAX_VALUE)) {
+            List<CompletableFuture<ExecutionService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(service.submit("DEF main() DO print(" + i + "); print(\"done\"); RETURN " + i + "; END"));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                ExecutionService.Result result = results.get(i).get();
+                Assertions.assertTrue(result.isSuccess(), result.toString());
+                Assertions.assertEquals(BigInteger.valueOf(i), result.getValue().getValue());
+                Assertions.assertEquals(i + System.lineSeparator() + "done" + System.lineSeparator(), result.getOutput());
+            }
+        }
+    }
+
+    @Test
+    void testProgram() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), Long.MAX_VALUE, Long.MAX_VALUE)) {
+            StackMachine.Program program = service.compile("LET x: Integer = 0; DEF main() DO x = x + 1; RETURN x; END");
+            Assertions.assertSame(program, service.compile("LET x: Integer = 0; DEF main() DO x = x + 1; RETURN x; END"));
+            Assertions.assertEquals(BigInteger.ONE, service.submit(program).get().getValue().getValue());
+            Assertions.assertEquals(BigInteger.ONE, service.submit(program).get().getValue().getValue());
+        }
+    }
+
+    @Test
+    void testInstructionLimit() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), 1000, Long.MAX_VALUE)) {
+            ExecutionService.Result result = service.submit(LOOP).get();
+            Assertions.assertFalse(result.isSuccess());
+            Assertions.assertEquals("Exceeded the limit of 1000 instructions.", result.getError().getMessage());
+        }
+    }
+
+    @Test
+    void testTimeLimit() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), Long.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(50))) {
+            ExecutionService.Result result = service.submit(LOOP).get(10, TimeUnit.SECONDS);
+            Assertions.assertFalse(result.isSuccess());
+            Assertions.assertEquals("Exceeded the time limit of 50 ms.", result.getError().getMessage());
+        }
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), Long.MAX_VALUE, Long.MAX_VALUE)) {
+            ExecutionService.Result parse = service.submit("DEF main() DO").get();
+            Assertions.assertTrue(parse.getError() instanceof ParseException);
+            ExecutionService.Result runtime = service.submit("DEF main() DO print(1); RETURN 1 / 0; END").get();
+            Assertions.assertFalse(runtime.isSuccess());
+            Assertions.assertEquals("1" + System.lineSeparator(), runtime.getOutput());
+        }
+    }
+
+    @Test
+    void testMetrics() throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null), 1000, Long.MAX_VALUE)) {
+            service.submit("DEF main() DO RETURN 1; END").get();
+            service.submit(LOOP).get();
+            ExecutionService.Metrics metrics = service.getMetrics();
+            Assertions.assertEquals(2, metrics.getExecutions());
+            Assertions.assertEquals(1, metrics.getFailures());
+            Assertions.assertTrue(metrics.getMaxLatencyNanos() >= metrics.getAverageLatencyNanos());
+            Assertions.assertTrue(metrics.getThroughput() > 0);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class IncrementalParserTests {
+
+    private static final String SOURCE = String.join("\n",
+            "LET x: Integer = 1;",
+            "LET y: Integer = x + 2;",
+            "DEF f(n: Integer): Integer DO",
+            "    IF n < 2 DO RETURN n; END",
+            "    RETURN f(n - 1) + f(n - 2);",
+            "END",
+            "DEF main(): Integer DO",
+            "    LET s = \"a b\";",
+            "    WHILE x < 10 DO x = x + 1; END",
+            "    RETURN f(x) * y;",
+            "END",
+            ""
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEdit(String test, String target, String replacement) {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        int offset = SOURCE.indexOf(target);
+        assertEdit(parser, offset, target.length(), replacement);
+    }
+
+    private static Stream<Arguments> testEdit() {
+        return Stream.of(
+                Arguments.of("Literal", "x + 2", "x + 20"),
+                Arguments.of("Identifier", "n - 1", "nn - 1"),
+                Arguments.of("Join Tokens", "x + 1", "x+1"),
+                Arguments.of("Split Token", "main", "ma in"),
+                Arguments.of("Number", "10", "1.5"),
+                Arguments.of("Statement", "    RETURN f(x) * y;", "    print(y); RETURN f(x) * y;"),
+                Arguments.of("Whitespace", "    WHILE", "      WHILE"),
+                Arguments.of("String", "\"a b\"", "\"a END b\""),
+                Arguments.of("Remove Method", "DEF main", "END DEF main"),
+                Arguments.of("New Field", "DEF f", "LET z: Integer = 0; DEF f"),
+                Arguments.of("Field To Method", "LET y: Integer = x + 2;", "DEF g() DO END"),
+                Arguments.of("Unterminated String", "\"a b\"", "\"a b"),
+                Arguments.of("Parse Error", "RETURN n;", "RETURN n")
+        );
+    }
+
+    @Test
+    void testReuse() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        Ast.Source before = parser.getAst();
+        List<Token> tokens = parser.getTokens();
+        int offset = SOURCE.indexOf("10");
+        Ast.Source after = assertEdit(parser, offset, 2, "100");
+        Assertions.assertSame(before.getFields().get(0), after.getFields().get(0));
+        Assertions.assertSame(before.getMethods().get(0), after.getMethods().get(0));
+        Assertions.assertNotSame(before.getMethods().get(1), after.getMethods().get(1));
+        Assertions.assertSame(tokens.get(0), parser.getTokens().get(0));
+    }
+
+    @Test
+    void testRecovery() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        int offset = SOURCE.indexOf("RETURN n;") + "RETURN n".length();
+        Assertions.assertThrows(ParseException.class, () -> parser.edit(offset, 1, ""));
+        Assertions.assertNull(parser.getAst());
+        assertEdit(parser, offset, 0, ";");
+    }
+
+    @Test
+    void testRandomEdits() {
+        String[] insertions = {"", " ", "1", "x", "+", "-2", ".5", ";", "(", ")", "\"", "'c'", "=", "<", "END", "DO", "LET", "DEF g() DO END", "LET z = 1;", "RETURN 0;", "\n"};
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            IncrementalParser parser = new IncrementalParser(SOURCE);
+            for (int i = 0; i < 50; i++) {
+                String source = parser.getSource();
+                int offset = random.nextInt(source.length() + 1);
+                int removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+                assertEdit(parser, offset, removed, insertions[random.nextInt(insertions.length)]);
+            }
+        }
+    }
+
+    private static Ast.Source assertEdit(IncrementalParser parser, int offset, int removed, String inserted) {
+        String source = parser.getSource();
+        String text = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        List<Token> tokens;
+        Ast.Source expected;
+        try {
+            tokens = new TableLexer(text).lex();
+            expected = new Parser(tokens).parseSource();
+        } catch (RuntimeException e) {
+            RuntimeException actual = Assertions.assertThrows(e.getClass(), () -> parser.edit(offset, removed, inserted));
+            Assertions.assertEquals(e.getMessage(), actual.getMessage());
+            if (e instanceof ParseException) {
+                Assertions.assertEquals(((ParseException) e).getIndex(), ((ParseException) actual).getIndex());
+            }
+            Assertions.assertEquals(text, parser.getSource());
+            return null;
+        }
+        Ast.Source actual = parser.edit(offset, removed, inserted);
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(tokens, parser.getTokens());
+        Assertions.assertEquals(text, parser.getSource());
+        return actual;
+    }
+
+}
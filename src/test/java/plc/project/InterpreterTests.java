@@ -47,6 +47,71 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testResolvedSource() {
+        Scope scope = new Scope(null);
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Ast.Expr.Access list = new Ast.Expr.Access(Optional.empty(), "list");
+        Ast.Source ast = new Ast.Source(
+                Arrays.asList(new Ast.Field("total", Optional.of(new Ast.Expr.Literal(BigInteger.ZERO)))),
+                Arrays.asList(
+                        new Ast.Method("square", Arrays.asList("x"), Arrays.asList(
+                                new Ast.Stmt.Return(new Ast.Expr.Binary("*",
+                                        new Ast.Expr.Access(Optional.empty(), "x"),
+                                        new Ast.Expr.Access(Optional.empty(), "x")
+                                ))
+                        )),
+                        new Ast.Method("main", Arrays.asList(), Arrays.asList(
+                                new Ast.Stmt.For("num", list, Arrays.asList(
+                                        new Ast.Stmt.Declaration("sq", Optional.of(new Ast.Expr.Function(Optional.empty(), "square", Arrays.asList(
+                                                new Ast.Expr.Access(Optional.empty(), "num")
+                                        )))),
+                                        new Ast.Stmt.Assignment(
+                                                new Ast.Expr.Access(Optional.empty(), "total"),
+                                                new Ast.Expr.Binary("+",
+                                                        new Ast.Expr.Access(Optional.empty(), "total"),
+                                                        new Ast.Expr.Access(Optional.empty(), "sq")
+                                                )
+                                        )
+                                )),
+                                new Ast.Stmt.Return(new Ast.Expr.Access(Optional.empty(), "total"))
+                        ))
+                )
+        );
+        new Resolver().visit(ast);
+        Assertions.assertEquals(1, ast.getFrameSize());
+        Assertions.assertEquals(2, ast.getMethods().get(1).getFrameSize());
+        Assertions.assertEquals(-1, list.getSlot());
+        test(ast, BigInteger.valueOf(30), scope);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testReturn(String test, String input, Object expected) {
+        Ast.Source unresolved = new Parser(new TableLexer(input).lex()).parseSource();
+        Ast.Source resolved = new Parser(new TableLexer(input).lex()).parseSource();
+        new Resolver().visit(resolved);
+        for (Ast.Source ast : Arrays.asList(unresolved, resolved)) {
+            Scope scope = new Scope(null);
+            scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                    .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                    .collect(Collectors.toList())));
+            test(ast, expected, scope);
+        }
+    }
+
+    private static Stream<Arguments> testReturn() {
+        return Stream.of(
+                Arguments.of("Early Return", "DEF main(): Integer DO RETURN 1; RETURN 2; END", BigInteger.ONE),
+                Arguments.of("Return From While", "DEF main(): Integer DO LET i = 0; WHILE TRUE DO IF i == 3 DO RETURN i; END i = i + 1; END END", BigInteger.valueOf(3)),
+                Arguments.of("Return From For", "DEF first(): Integer DO FOR n IN list DO IF n > 2 DO RETURN n; END END RETURN 0; END DEF main(): Integer DO RETURN first(); END", BigInteger.valueOf(3)),
+                Arguments.of("Recursion", "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END DEF main(): Integer DO RETURN fib(15); END", BigInteger.valueOf(610)),
+                Arguments.of("No Return", "DEF none() DO LET x = 1; END DEF main(): Integer DO none(); RETURN 5; END", BigInteger.valueOf(5))
+        );
+    }
+
     @ParameterizedTest
     @MethodSource
     void testField(String test, Ast.Field ast, Object expected) {
@@ -236,6 +301,16 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testLiteralObjectShared() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Ast.Expr.Literal literal = new Ast.Expr.Literal("string");
+        Assertions.assertSame(interpreter.visit(literal), interpreter.visit(literal));
+        Assertions.assertSame(Environment.NIL, interpreter.visit(new Ast.Expr.Literal(null)));
+        Assertions.assertSame(interpreter.visit(new Ast.Expr.Literal(true)), Environment.create(true));
+        Assertions.assertSame(interpreter.visit(new Ast.Expr.Literal(BigInteger.TEN)), Environment.create(10L));
+    }
+
     @ParameterizedTest
     @MethodSource
     void testGroupExpression(String test, Ast ast, Object expected) {
@@ -322,6 +397,71 @@ final class InterpreterTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testIntegerOverflow(String test, Ast ast, Object expected) {
+        test(ast, expected, new Scope(null));
+    }
+
+    private static Stream<Arguments> testIntegerOverflow() {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        return Stream.of(
+                Arguments.of("Addition",
+                        new Ast.Expr.Binary("+", new Ast.Expr.Literal(max), new Ast.Expr.Literal(BigInteger.ONE)),
+                        max.add(BigInteger.ONE)
+                ),
+                Arguments.of("Subtraction",
+                        new Ast.Expr.Binary("-", new Ast.Expr.Literal(min), new Ast.Expr.Literal(BigInteger.ONE)),
+                        min.subtract(BigInteger.ONE)
+                ),
+                Arguments.of("Multiplication",
+                        new Ast.Expr.Binary("*", new Ast.Expr.Literal(max), new Ast.Expr.Literal(max)),
+                        max.multiply(max)
+                ),
+                Arguments.of("Negated Multiplication",
+                        new Ast.Expr.Binary("*", new Ast.Expr.Literal(min), new Ast.Expr.Literal(BigInteger.ONE.negate())),
+                        min.negate()
+                ),
+                Arguments.of("Division",
+                        new Ast.Expr.Binary("/", new Ast.Expr.Literal(min), new Ast.Expr.Literal(BigInteger.ONE.negate())),
+                        min.negate()
+                ),
+                Arguments.of("Comparison",
+                        new Ast.Expr.Binary("<", new Ast.Expr.Literal(max), new Ast.Expr.Literal(max.add(BigInteger.ONE))),
+                        true
+                )
+        );
+    }
+
+    @Test
+    void testApproximateDecimals() {
+        Ast ast = new Ast.Expr.Binary("+",
+                new Ast.Expr.Literal(new BigDecimal("0.1")),
+                new Ast.Expr.Literal(new BigDecimal("0.2"))
+        );
+        test(ast, new BigDecimal("0.3"), new Scope(null));
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setApproximateDecimals(true);
+        Assertions.assertEquals(BigDecimal.valueOf(0.1 + 0.2), interpreter.visit(ast).getValue());
+    }
+
+    @Test
+    void testBinaryOperandsEvaluatedOnce() {
+        Scope scope = new Scope(null);
+        int[] calls = {0};
+        scope.defineFunction("one", 0, args -> {
+            calls[0]++;
+            return Environment.create(BigInteger.ONE);
+        });
+        Ast.Expr expr = new Ast.Expr.Function(Optional.empty(), "one", Arrays.asList());
+        for (int i = 1; i < 1000; i++) {
+            expr = new Ast.Expr.Binary("+", expr, new Ast.Expr.Function(Optional.empty(), "one", Arrays.asList()));
+        }
+        test(expr, BigInteger.valueOf(1000), scope);
+        Assertions.assertEquals(1000, calls[0]);
+    }
+
     @ParameterizedTest
     @MethodSource
     void testAccessExpression(String test, Ast ast, Object expected) {
@@ -0,0 +1,78 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public class MethodCacheTests {
+
+    @Test
+    void testMonomorphic() {
+        Environment.Type type = type("A", "a");
+        MethodCache cache = new MethodCache("method", 1);
+        Environment.Function function = cache.lookup(type);
+        Assertions.assertSame(type.getMethod("method", 1), function);
+        Assertions.assertSame(function, cache.lookup(type));
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testPolymorphic() {
+        MethodCache cache = new MethodCache("method", 1);
+        List<Environment.Type> types = new ArrayList<>();
+        for (int i = 0; i < MethodCache.LIMIT + 2; i++) {
+            types.add(type("T" + i, "t" + i));
+        }
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < types.size(); i++) {
+                Environment.PlcObject receiver = new Environment.PlcObject(types.get(i), types.get(i).getScope(), "receiver");
+                Environment.PlcObject result = cache.invoke(new Environment.PlcObject[] {receiver, Environment.create(BigInteger.ONE)});
+                Assertions.assertEquals("t" + i + ":receiver:1", result.getValue());
+            }
+        }
+        Assertions.assertEquals(MethodCache.LIMIT, cache.size());
+    }
+
+    @Test
+    void testUndefined() {
+        MethodCache cache = new MethodCache("undefined", 0);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> cache.lookup(type("A", "a")));
+        Assertions.assertEquals("The function undefined/1 is not defined in this scope.", exception.getMessage());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCallSite() {
+        Environment.Type a = type("A", "a");
+        Environment.Type b = type("B", "b");
+        Scope scope = new Scope(null);
+        scope.defineVariable("a", new Environment.PlcObject(a, a.getScope(), "x"));
+        scope.defineVariable("b", new Environment.PlcObject(b, b.getScope(), "y"));
+        Ast.Expr.Function call = new Ast.Expr.Function(Optional.of(new Ast.Expr.Access(Optional.empty(), "a")), "method",
+                Arrays.asList(new Ast.Expr.Literal(BigInteger.TEN)));
+        Assertions.assertNull(new Ast.Expr.Function(Optional.empty(), "method", Arrays.asList()).getCache());
+        Interpreter interpreter = new Interpreter(scope);
+        Assertions.assertEquals("a:x:10", interpreter.visit(call).getValue());
+        Assertions.assertEquals("a:x:10", interpreter.visit(call).getValue());
+        Assertions.assertEquals(1, call.getCache().size());
+        scope.lookupVariable("a").setValue(new Environment.PlcObject(b, b.getScope(), "z"));
+        Assertions.assertEquals("b:z:10", interpreter.visit(call).getValue());
+        Assertions.assertEquals(2, call.getCache().size());
+    }
+
+    /**
+     * Creates a type whose method {@code method/1} returns its label, receiver,
+     * and argument, separated by colons.
+     */
+    private static Environment.Type type(String name, String label) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("method", 2, args -> Environment.create(label + ":" + args.get(0).getValue() + ":" + args.get(1).getValue()));
+        return new Environment.Type(name, name, scope);
+    }
+
+}
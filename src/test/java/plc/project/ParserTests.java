@@ -6,11 +6,14 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -595,6 +598,101 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testStreamingSource() {
+        String input = Benchmarks.generateSource(20);
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new TableLexer(new StringReader(input))).parseSource());
+    }
+
+    @Test
+    void testBufferedSource() {
+        String input = Benchmarks.generateSource(20);
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(TokenBuffer.lex(input)).parseSource());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testParallelSource(String test, String input) {
+        List<Token> tokens = new TableLexer(input).lex();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            try {
+                Ast.Source expected = new Parser(tokens).parseSource();
+                Assertions.assertEquals(expected, Parser.parseSource(tokens, pool));
+            } catch (ParseException e) {
+                ParseException actual = Assertions.assertThrows(ParseException.class, () -> Parser.parseSource(tokens, pool));
+                Assertions.assertEquals(e.getMessage(), actual.getMessage());
+                Assertions.assertEquals(e.getIndex(), actual.getIndex());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallelSource() {
+        return Stream.of(
+                Arguments.of("Generated", Benchmarks.generateSource(200)),
+                Arguments.of("Fields Only", "LET x: Integer = 1; LET y: Integer;"),
+                Arguments.of("Single Method", "DEF main(): Integer DO RETURN 0; END"),
+                Arguments.of("Nested Blocks", "LET x: Integer = 1;\n" +
+                        "DEF f(a: Integer) DO IF a DO WHILE a DO a = a - 1; END ELSE FOR i IN list DO print(i); END END END\n" +
+                        "DEF g() DO RETURN f(x); END"),
+                Arguments.of("Method Error", "DEF f() DO RETURN 1 END\nDEF g() DO END"),
+                Arguments.of("Field After Method", "DEF f() DO END\nLET x: Integer;\nDEF g() DO END"),
+                Arguments.of("Trailing Tokens", "DEF f() DO END\nDEF g() DO END x")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRecovery(String test, String input, int errors, String recovered) {
+        List<Token> tokens = new TableLexer(input).lex();
+        List<ParseException> actual = new ArrayList<>();
+        Ast.Source ast = new Parser(tokens).parseSourceRecovering(actual);
+        Assertions.assertEquals(errors, actual.size(), actual.toString());
+        if (errors == 0) {
+            Assertions.assertEquals(new Parser(tokens).parseSource(), ast);
+        } else {
+            ParseException expected = Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource());
+            Assertions.assertEquals(expected.getMessage(), actual.get(0).getMessage());
+            Assertions.assertEquals(expected.getIndex(), actual.get(0).getIndex());
+        }
+        Assertions.assertEquals(new Parser(new TableLexer(recovered).lex()).parseSource(), ast);
+    }
+
+    private static Stream<Arguments> testRecovery() {
+        return Stream.of(
+                Arguments.of("No Errors", Benchmarks.generateSource(5), 0, Benchmarks.generateSource(5)),
+                Arguments.of("Statement Errors",
+                        "DEF f() DO x = ; y; z = 1 END\nDEF g() DO RETURN 1; END", 2,
+                        "DEF f() DO y; END\nDEF g() DO RETURN 1; END"),
+                Arguments.of("Nested Statement Error",
+                        "DEF f() DO WHILE x DO y = ; END z; END", 1,
+                        "DEF f() DO WHILE x DO END z; END"),
+                Arguments.of("Block Error",
+                        "DEF f() DO FOR IN list DO IF y DO z; END END w; END", 1,
+                        "DEF f() DO w; END"),
+                Arguments.of("Else Error",
+                        "DEF f() DO IF x DO y = ; ELSE z = ; END w; END", 2,
+                        "DEF f() DO IF x DO ELSE END w; END"),
+                Arguments.of("Field Error",
+                        "LET x: = 1;\nLET y: Integer = 2;\nDEF f() DO END", 1,
+                        "LET y: Integer = 2;\nDEF f() DO END"),
+                Arguments.of("Method Error",
+                        "DEF f(: Integer) DO x; END\nDEF g() DO y = ; END\nDEF h() DO END", 2,
+                        "DEF g() DO END\nDEF h() DO END"),
+                Arguments.of("First Method Header Error",
+                        "DEF f( DO LET x = 1; LET y = 2; END DEF main() DO END", 1,
+                        "DEF main() DO END"),
+                Arguments.of("Leading Tokens", "x DEF f() DO END", 1, "DEF f() DO END"),
+                Arguments.of("Trailing Tokens", "DEF f() DO END x y\nDEF g() DO END", 1, "DEF f() DO END\nDEF g() DO END"),
+                Arguments.of("Trailing Token", "DEF f() DO END x", 1, "DEF f() DO END"),
+                Arguments.of("Missing End", "DEF f() DO x;", 1, "")
+        );
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).
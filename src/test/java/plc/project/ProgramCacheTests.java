@@ -0,0 +1,101 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProgramCacheTests {
+
+    @Test
+    void testHitsAndMisses() {
+        ProgramCache<Ast.Source> cache = new ProgramCache<>(4, ProgramCacheTests::analyze);
+        Ast.Source ast = cache.get("DEF main(): Integer DO RETURN 0; END");
+        Assertions.assertSame(ast, cache.get("DEF main(): Integer DO RETURN 0; END"));
+        Assertions.assertNotSame(ast, cache.get("DEF main(): Integer DO RETURN 1; END"));
+        ProgramCache.Statistics statistics = cache.getStatistics();
+        Assertions.assertEquals(1, statistics.getHits());
+        Assertions.assertEquals(2, statistics.getMisses());
+        Assertions.assertEquals(0, statistics.getEvictions());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        AtomicInteger compiles = new AtomicInteger();
+        ProgramCache<String> cache = new ProgramCache<>(2, source -> source + compiles.incrementAndGet());
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getStatistics().getEvictions());
+        Assertions.assertEquals("a1", cache.get("a"));
+        Assertions.assertEquals("c3", cache.get("c"));
+        Assertions.assertEquals("b4", cache.get("b"));
+    }
+
+    @Test
+    void testErrorNotCached() {
+        AtomicInteger compiles = new AtomicInteger();
+        ProgramCache<Ast.Source> cache = new ProgramCache<>(4, source -> {
+            compiles.incrementAndGet();
+            return analyze(source);
+        });
+        Assertions.assertThrows(ParseException.class, () -> cache.get("DEF main() DO"));
+        Assertions.assertThrows(ParseException.class, () -> cache.get("DEF main() DO"));
+        Assertions.assertEquals(2, compiles.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testThrowableNotCached() {
+        AtomicInteger compiles = new AtomicInteger();
+        ProgramCache<String> cache = new ProgramCache<>(4, source -> {
+            if (compiles.incrementAndGet() == 1) {
+                throw new StackOverflowError();
+            }
+            return source;
+        });
+        Assertions.assertThrows(StackOverflowError.class, () -> cache.get("a"));
+        Assertions.assertEquals("a", Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> cache.get("a")));
+        Assertions.assertEquals(2, compiles.get());
+    }
+
+    @Test
+    void testConcurrentCompilation() throws Exception {
+        AtomicInteger compiles = new AtomicInteger();
+        ProgramCache<Compiler.Program> cache = new ProgramCache<>(4, source -> {
+            compiles.incrementAndGet();
+            return new Compiler(new Scope(null)).compile(new Parser(TokenBuffer.lex(source)).parseSource());
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Environment.PlcObject>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(() -> cache.get("DEF main() DO RETURN 6 * 7; END").execute()));
+            }
+            for (Future<Environment.PlcObject> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(42), result.get().getValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(1, compiles.get());
+        Assertions.assertEquals(63, cache.getStatistics().getHits());
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new TableLexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
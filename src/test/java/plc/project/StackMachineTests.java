@@ -0,0 +1,118 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Differential tests checking that a {@link StackMachine.Program} returns the
+ * same results and errors as the {@link Interpreter}, and tests of recursion
+ * too deep for the Java stack.
+ */
+public class StackMachineTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testDifferential(String test, String input) {
+        assertSameResult(input);
+    }
+
+    private static Stream<Arguments> testDifferential() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main() DO RETURN 0; END"),
+                Arguments.of("No Return", "DEF main() DO 1; END"),
+                Arguments.of("Fields", "LET x: Integer = 1; LET y: Integer = x + 10; DEF main() DO RETURN x * y; END"),
+                Arguments.of("Field Assignment", "LET x: Integer = 1; DEF main() DO x = x + 1; RETURN x; END"),
+                Arguments.of("Arithmetic", "DEF main() DO RETURN (7 - 2) * 3 / 2 + 1.5 * 2.0 / 4.0 - 0.5; END"),
+                Arguments.of("Concatenation", "DEF main() DO RETURN \"a\" + 1 + \"b\"; END"),
+                Arguments.of("Comparison", "DEF main() DO RETURN 1 < 2 AND 2 <= 2 AND 3 > 2 AND 3 >= 4 OR 1 == 1 AND 1 != 2; END"),
+                Arguments.of("Short Circuit", "DEF main() DO RETURN TRUE OR undefined(); END"),
+                Arguments.of("If Else", "DEF main() DO LET x = 0; IF x == 0 DO x = 1; ELSE x = 2; END RETURN x; END"),
+                Arguments.of("While", "DEF main() DO LET i = 0; LET sum = 0; WHILE i < 10 DO sum = sum + i; i = i + 1; END RETURN sum; END"),
+                Arguments.of("Return In Loop", "DEF main() DO LET i = 0; WHILE TRUE DO IF i == 5 DO RETURN i; END i = i + 1; END END"),
+                Arguments.of("Loop Declaration", "DEF main() DO LET i = 0; LET last = 0; WHILE i < 3 DO LET x; IF i == 0 DO x = 1; END last = x; i = i + 1; END RETURN last; END"),
+                Arguments.of("Tail Call", "DEF count(n: Integer, total: Integer): Integer DO IF n == 0 DO RETURN total; END RETURN count(n - 1, total + n); END DEF main() DO RETURN count(100, 0); END"),
+                Arguments.of("Return From For", "DEF main() DO FOR n IN list DO IF n == 3 DO RETURN n * 2; END END RETURN 0; END"),
+                Arguments.of("Print", "DEF main() DO print(\"a\"); RETURN print(1); END"),
+                Arguments.of("Undefined Method", "DEF main() DO RETURN list.size(); END"),
+                Arguments.of("Recursion", "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END DEF main() DO RETURN fib(15); END"),
+                Arguments.of("Call From Method", "DEF square(n: Integer): Integer DO RETURN n * n; END DEF main() DO RETURN square(4); END"),
+                Arguments.of("Call From Field", "LET x: Integer = square(4); DEF square(n: Integer): Integer DO RETURN n * n; END DEF main() DO RETURN x; END"),
+                Arguments.of("Host Variable", "DEF main() DO host = host + 1; RETURN host; END"),
+                Arguments.of("For", "LET total: Integer = 0; DEF main() DO FOR n IN list DO total = total + n; END RETURN total; END"),
+                Arguments.of("Divide By Zero", "DEF main() DO RETURN 1 / 0; END"),
+                Arguments.of("Type Error", "DEF main() DO RETURN 1 + TRUE; END"),
+                Arguments.of("Undefined Variable", "DEF main() DO RETURN undefined; END"),
+                Arguments.of("Undefined Main", "DEF other() DO RETURN 0; END")
+        );
+    }
+
+    @Test
+    void testRepeatedExecution() {
+        StackMachine.Program program = compile("LET x: Integer = 0; DEF main() DO x = x + 1; RETURN x; END");
+        Assertions.assertEquals(BigInteger.ONE, program.execute().getValue());
+        Assertions.assertEquals(BigInteger.ONE, program.execute().getValue());
+    }
+
+    @Test
+    void testRepeatedCompilation() {
+        StackMachine machine = new StackMachine(new Scope(null));
+        StackMachine.Program first = machine.compile(new Parser(new TableLexer("DEF main() DO RETURN 1; END").lex()).parseSource());
+        StackMachine.Program second = machine.compile(new Parser(new TableLexer("DEF f() DO RETURN 2; END DEF main() DO RETURN f(); END").lex()).parseSource());
+        Assertions.assertEquals(BigInteger.ONE, first.execute().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(2), second.execute().getValue());
+    }
+
+    @Test
+    void testDeepRecursion() {
+        StackMachine.Program program = compile("DEF sum(n: Integer): Integer DO IF n == 0 DO RETURN 0; END RETURN n + sum(n - 1); END DEF main() DO RETURN sum(200000); END");
+        Assertions.assertEquals(BigInteger.valueOf(20000100000L), program.execute().getValue());
+    }
+
+    @Test
+    void testDeepTailCalls() {
+        StackMachine.Program program = compile("DEF count(n: Integer, total: Integer): Integer DO IF n == 0 DO RETURN total; END RETURN count(n - 1, total + 1); END DEF main() DO RETURN count(1000000, 0); END");
+        Assertions.assertEquals(BigInteger.valueOf(1000000), program.execute().getValue());
+    }
+
+    private static StackMachine.Program compile(String input) {
+        return new StackMachine(new Scope(null)).compile(new Parser(new TableLexer(input).lex()).parseSource());
+    }
+
+    private static void assertSameResult(String input) {
+        Object expected = run(input, false);
+        Object actual = run(input, true);
+        if (expected instanceof RuntimeException) {
+            Assertions.assertTrue(actual instanceof RuntimeException, "Expected an exception, received " + actual + ".");
+            Assertions.assertEquals(((RuntimeException) expected).getMessage(), ((RuntimeException) actual).getMessage());
+        } else {
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    private static Object run(String input, boolean compiled) {
+        Scope scope = new Scope(null);
+        scope.defineVariable("host", Environment.create(BigInteger.ONE));
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Ast.Source ast = new Parser(new TableLexer(input).lex()).parseSource();
+        try {
+            if (compiled) {
+                return new StackMachine(scope).compile(ast).execute().getValue();
+            } else {
+                return new Interpreter(scope).visit(ast).getValue();
+            }
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+}
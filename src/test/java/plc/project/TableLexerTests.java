@@ -0,0 +1,149 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Differential tests checking that {@link TableLexer} produces the same tokens
+ * and errors as {@link Lexer}.
+ */
+public class TableLexerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testDifferential(String test, String input) {
+        assertSameResult(input);
+    }
+
+    private static Stream<Arguments> testDifferential() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Whitespace", " \b\n\r\t"),
+                Arguments.of("Identifiers", "getName thelegend27 some-name _dogs __"),
+                Arguments.of("Integers", "1 007 +100 -5 1234567890"),
+                Arguments.of("Decimals", "123.456 -1.0 1. .5 1.2.3"),
+                Arguments.of("Characters", "'c' '\\n' '\\t' '\"'"),
+                Arguments.of("Strings", "\"\" \"abc\" \"Hello,\\nWorld!\" \"\\\"quoted\\\"\""),
+                Arguments.of("Operators", "( ) ; = == != < <= > >= + - * / . , ! $"),
+                Arguments.of("Signs", "1 - 2 + -3 a-1 -a"),
+                Arguments.of("Method", "DEF main(): Integer DO\n    RETURN x + 1.5 * f(y, 'z');\nEND"),
+                Arguments.of("Empty Character", "''"),
+                Arguments.of("Multiple Characters", "'abc'"),
+                Arguments.of("Unterminated Character", "'a"),
+                Arguments.of("Invalid Character Escape", "'\\q'"),
+                Arguments.of("Unterminated String", "\"unterminated"),
+                Arguments.of("Newline In String", "\"new\nline\""),
+                Arguments.of("Invalid String Escape", "\"invalid\\escape\"")
+        );
+    }
+
+    @Test
+    void testRandomInputs() {
+        String alphabet = "abcXYZ_019-+.'\"\\ \n\tbnrt<>=!();,";
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertSameResult(builder.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDifferential")
+    void testReader(String test, String input) {
+        assertSameResult(input, () -> {
+            List<Token> tokens = new ArrayList<>();
+            new TableLexer(new StringReader(input), 4).forEachRemaining(tokens::add);
+            return tokens;
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDifferential")
+    void testMapped(String test, String input) {
+        ByteBuffer bytes = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        assertSameResult(input, () -> new TableLexer(bytes, 4).lex());
+    }
+
+    @Test
+    void testMappedFile() throws IOException {
+        String input = Benchmarks.generateSource(10) + "\"caf\u00e9 \u20ac \ud83d\ude00\" '\u00e9' \u00e9\ud83d\ude00";
+        Path path = Files.createTempFile("source", ".plc");
+        try {
+            Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+            Assertions.assertEquals(new Lexer(input).lex(), TableLexer.map(path).lex());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDifferential")
+    void testTokenBuffer(String test, String input) {
+        assertSameResult(input, () -> {
+            TokenBuffer buffer = TokenBuffer.lex(input);
+            List<Token> tokens = new ArrayList<>();
+            for (int i = 0; i < buffer.size(); i++) {
+                Assertions.assertTrue(buffer.matches(i, buffer.getLiteral(i)));
+                tokens.add(buffer.get(i));
+            }
+            return tokens;
+        });
+    }
+
+    @Test
+    void testSymbols() {
+        List<Token> tokens = new TableLexer("LET name = name + other;").lex();
+        Assertions.assertNotEquals(0, tokens.get(0).getSymbol());
+        Assertions.assertSame("LET", tokens.get(0).getLiteral());
+        Assertions.assertEquals(0, tokens.get(1).getSymbol());
+        Assertions.assertSame(tokens.get(1).getLiteral(), tokens.get(3).getLiteral());
+        Assertions.assertSame("+", tokens.get(4).getLiteral());
+        Assertions.assertEquals(0, tokens.get(5).getSymbol());
+    }
+
+    @Test
+    void testReaderLongInput() {
+        String input = Benchmarks.generateSource(50);
+        Assertions.assertEquals(new Lexer(input).lex(), new TableLexer(new StringReader(input), 16).lex());
+    }
+
+    private static void assertSameResult(String input) {
+        assertSameResult(input, () -> new TableLexer(input).lex());
+    }
+
+    private static void assertSameResult(String input, Supplier<List<Token>> lexer) {
+        Object expected;
+        try {
+            expected = new Lexer(input).lex();
+        } catch (ParseException e) {
+            expected = e.getMessage() + "@" + e.getIndex();
+        }
+        Object actual;
+        try {
+            actual = lexer.get();
+        } catch (ParseException e) {
+            actual = e.getMessage() + "@" + e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual, input);
+    }
+
+}